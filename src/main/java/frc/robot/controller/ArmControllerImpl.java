@@ -2,9 +2,14 @@ package frc.robot.controller;
 
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.interfaces.ArmController;
+import frc.robot.main.ControlLoops;
+import frc.robot.main.Tunables;
 import frc.robot.subsystem.ElevatorSubsystem;
 import frc.robot.subsystem.GyroSubsystem;
 import frc.robot.subsystem.PulleyLiftSubsystem;
+import frc.robot.util.RobotLogger;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Rate;
 
 public class ArmControllerImpl implements ArmController {
     private PulleyLiftSubsystem liftSubsystem = new PulleyLiftSubsystem();
@@ -17,11 +22,22 @@ public class ArmControllerImpl implements ArmController {
     private int liftMaxAngle = 82; // Cant go higher than 82deg
     private int maxArmHeight = 78; // 6'6 ft
     private int maxArmWidth = 48; // 4' ft
-    private int maxExtensionInches = 0;
+    private double maxExtensionInches = 0;
+    private final ArmKinematics kinematics = new ArmKinematics();
+    private final ArmMotionPlanner planner = new ArmMotionPlanner();
+    private final ArmMotionPlanner.Axis liftAxis = liftSubsystem::moveToPosition;
+    private final ArmMotionPlanner.Axis elevAxis = elevatorSubsystem::moveToTarget;
+
+    // Target seeking runs in a 10ms control loop while the main loop keeps asking for it
+    private final ControlLoops controlLoops = ControlLoops.getInstance();
+    private double liftSeekTarget, elevSeekTarget;
+    private long seekTick = -1;
+    private boolean liftReached = false, elevReached = false;
 
     public ArmControllerImpl() {
         SmartDashboard.putNumber(ArmController.ARM_MAX_HEIGHT,maxArmHeight); 
         SmartDashboard.putNumber(ArmController.ARM_MAX_WIDTH, maxArmWidth); 
+        kinematics.setLimits(maxArmHeight, maxArmWidth);
 
         SmartDashboard.putNumber(LIFT_POSITION, 0);
         SmartDashboard.putNumber(LIFT_CONE_KEY, 60);
@@ -29,29 +45,33 @@ public class ArmControllerImpl implements ArmController {
         SmartDashboard.putNumber(LIFT_STAB_KEY, 50);
 
         SmartDashboard.putNumber(ELEV_POSITION, 0);
-        SmartDashboard.putNumber(ELEV_CONE_KEY, 50);
-        SmartDashboard.putNumber(ELEV_CUBE_KEY, 55);
-        SmartDashboard.putNumber(ELEV_STAB_KEY, 5);
+        SmartDashboard.putNumber(ELEV_CONE_KEY, 64);
+        SmartDashboard.putNumber(ELEV_CUBE_KEY, 70.7);
+        SmartDashboard.putNumber(ELEV_STAB_KEY, 4);
+
+        Telemetry.getInstance().addNumber(LIFT_POSITION, Rate.Hz10, 0.05, liftSubsystem::getPosition);
+        Telemetry.getInstance().addNumber(ELEV_POSITION, Rate.Hz10, 0.05, elevatorSubsystem::getPosition);
+        Telemetry.getInstance().addNumber(ARM_REACH, Rate.Hz10, 0.1, this::getReach);
+        Telemetry.getInstance().addNumber(ARM_HEIGHT, Rate.Hz10, 0.1, this::getHeight);
+        controlLoops.add("Arm Seek", 0.01, 0.002, this::seekTarget);
     }
 
     public void init() {
         liftSubsystem.init();
         elevatorSubsystem.init();
         currentTarget = null;
-        maxArmWidth = (int) SmartDashboard.getNumber(ARM_MAX_WIDTH, maxArmWidth);
-        maxArmHeight = (int) SmartDashboard.getNumber(ARM_MAX_HEIGHT, maxArmHeight);
-        liftMinAngle = (int) SmartDashboard.getNumber(LIFT_MIN_ANGLE, liftMinAngle);
-        liftMaxAngle = (int) SmartDashboard.getNumber(LIFT_MAX_ANGLE, liftMaxAngle);
-        updateMaxExtension(getArmAngle());
+        seekTick = -1;
+        maxArmWidth = (int) Tunables.ARM_MAX_WIDTH.get();
+        maxArmHeight = (int) Tunables.ARM_MAX_HEIGHT.get();
+        kinematics.setLimits(maxArmHeight, maxArmWidth);
+        liftMinAngle = (int) Tunables.LIFT_MIN_ANGLE.get();
+        liftMaxAngle = (int) Tunables.LIFT_MAX_ANGLE.get();
+        updateMaxExtension(gyro.getPitch());
     }
 
     @Override
     public void periodic(long tickCount) {
-        //if ((tickCount & 0x1111) == 0x1111) 
-        {
-            SmartDashboard.putNumber(LIFT_POSITION, liftSubsystem.getPosition());
-            SmartDashboard.putNumber(ELEV_POSITION, elevatorSubsystem.getPosition());
-        }
+        // Lift and elevator positions are published by Telemetry
     }
 
     private Integer getArmAngle() {
@@ -63,9 +83,9 @@ public class ArmControllerImpl implements ArmController {
         Integer currArmAngle = getArmAngle();
         if (currArmAngle==null || currArmAngle>liftMinAngle) {
             liftSubsystem.raiseArm(speed);
-            updateMaxExtension(currArmAngle);
+            updateMaxExtension(gyro.getPitch());
         } else
-            System.out.println("Cant raise arm beyond "+currArmAngle);
+            RobotLogger.debug("Cant raise arm beyond {}", currArmAngle);
     }
 
     @Override
@@ -73,9 +93,9 @@ public class ArmControllerImpl implements ArmController {
         Integer currArmAngle = getArmAngle();
         if (currArmAngle==null || currArmAngle<liftMaxAngle) {
             liftSubsystem.lowerArm(speed);
-            updateMaxExtension(currArmAngle);
+            updateMaxExtension(gyro.getPitch());
         } else
-            System.out.println("Cant lower arm beyond "+currArmAngle);
+            RobotLogger.debug("Cant lower arm beyond {}", currArmAngle);
     }
 
     @Override
@@ -98,31 +118,66 @@ public class ArmControllerImpl implements ArmController {
         boolean status = false;
         switch (itemType) {
             case "Cone": 
-                lTarget= SmartDashboard.getNumber(LIFT_CONE_KEY, 60);
-                eTarget = SmartDashboard.getNumber(ELEV_CONE_KEY, 50);
+                lTarget= Tunables.LIFT_CONE.get();
+                eTarget = Tunables.ELEV_CONE.get();
                 break;
             case "Cube": 
-                lTarget= SmartDashboard.getNumber(LIFT_CUBE_KEY, 65);
-                eTarget = SmartDashboard.getNumber(ELEV_CUBE_KEY, 55);
+                lTarget= Tunables.LIFT_CUBE.get();
+                eTarget = Tunables.ELEV_CUBE.get();
                 break;
             case "Stable": 
-                lTarget= SmartDashboard.getNumber(LIFT_STAB_KEY, 50);
-                eTarget = SmartDashboard.getNumber(ELEV_STAB_KEY, 5);
+                lTarget= Tunables.LIFT_STABLE.get();
+                eTarget = Tunables.ELEV_STABLE.get();
                 break;
             default:
                 return status;
         }
         currentTarget = itemType;
-        boolean status1 = liftSubsystem.moveToTarget(lTarget);
-        boolean status2 = elevatorSubsystem.moveToTarget(eTarget);
-        status = status1 && status2;
+        if (seekTick<0 || liftSeekTarget!=lTarget || elevSeekTarget!=eTarget) {
+            liftSeekTarget = lTarget;
+            elevSeekTarget = eTarget;
+            liftReached = elevReached = false;
+            planMove(lTarget, eTarget);
+        }
+        seekTick = controlLoops.getMainTick();
+        moveToSeekTarget();
+        status = liftReached && elevReached;
         if (status) {
-            System.out.println("Completed move to target:"+itemType);
+            seekTick = -1;
+            RobotLogger.info("Completed move to target:{}", itemType);
             currentTarget = null;
         }
         return status;
     }
 
+    @Override
+    public boolean isAtTarget() {
+        return liftReached && elevReached;
+    }
+
+    // Runs every 10ms. Only moves while the main loop asked for the target in this tick.
+    private void seekTarget() {
+        if (seekTick!=controlLoops.getMainTick()) return;
+        moveToSeekTarget();
+    }
+
+    // Plans both axes together from where the arm is now. The elevator target is in inches.
+    private void planMove(double liftTarget, double elevInches) {
+        double liftFrom = liftSubsystem.getPosition();
+        double liftTo = liftSubsystem.getTargetPosition(liftTarget);
+        double inches = kinematics.getMaxExtension(gyro.getPitch(), liftTo-liftFrom,
+            liftSubsystem.getDegreesPerRotation(), liftMinAngle, liftMaxAngle);
+        double elevLimit = inches>0 ? elevatorSubsystem.getExtensionPosition(inches) : Double.NaN;
+        double seconds = planner.plan(liftFrom, liftTo, elevatorSubsystem.getEncoderPosition(),
+            elevatorSubsystem.getExtensionPosition(elevInches), elevLimit);
+        RobotLogger.info("Planned arm move:{}s", seconds);
+    }
+
+    private void moveToSeekTarget() {
+        updateMaxExtension(gyro.getPitch());
+        liftReached = elevReached = planner.step(liftAxis, elevAxis);
+    }
+
     @Override
     public void extendArm(double speed) {
         elevatorSubsystem.extendArm(speed);
@@ -146,7 +201,7 @@ public class ArmControllerImpl implements ArmController {
 
     public void stop() {
         if (!(liftSubsystem.isStopped() && elevatorSubsystem.isStopped()))
-            System.out.println("Stopped arm.....");
+            RobotLogger.info("Stopped arm.....");
         liftSubsystem.stop(); // Call this even if already stopped to maintain position
         elevatorSubsystem.stop();
     }
@@ -157,15 +212,19 @@ public class ArmControllerImpl implements ArmController {
         elevatorSubsystem.setPosition(0);        
     }
 
-    private void updateMaxExtension(Integer armAngle) {
-        if (armAngle==null) return;
-        int widthLimit = armAngle>=30 && maxArmWidth>0 ?(int)(maxArmWidth/Math.cos(Math.toRadians(90-armAngle))):-1;
-        int heightLimit = armAngle<=60 && maxArmHeight>0 ?(int)(maxArmHeight/Math.cos(Math.toRadians(armAngle))):-1;
-        if (heightLimit>0 && widthLimit>0)
-            maxExtensionInches = widthLimit<=heightLimit ? widthLimit : heightLimit;
-        else 
-            maxExtensionInches= widthLimit>0?widthLimit:heightLimit;
-        System.out.println("MaxExtn:"+maxExtensionInches+"(WidthLimit:"+widthLimit+", HeightLimit:"+heightLimit+") for ArmAngle:"+armAngle);
+    @Override
+    public double getReach() {
+        return kinematics.getReach(gyro.getPitch(), elevatorSubsystem.getExtensionInches());
+    }
+
+    @Override
+    public double getHeight() {
+        return kinematics.getHeight(gyro.getPitch(), elevatorSubsystem.getExtensionInches());
+    }
+
+    // A table read, so it can run on every raise and lower
+    private void updateMaxExtension(double armAngle) {
+        maxExtensionInches = kinematics.getMaxExtension(armAngle);
         elevatorSubsystem.setMaxExtension(maxExtensionInches);
     }
 
@@ -186,7 +245,7 @@ public class ArmControllerImpl implements ArmController {
             angleChanged = true;
         }*/
         if (angleChanged) {
-            double liftRange = SmartDashboard.getNumber(ArmController.LIFT_RANGE, 0);
+            double liftRange = Tunables.LIFT_RANGE.get();
             if (liftRange!=0)
                 liftSubsystem.setPositionByPitch(gyro.getPitch());
         }
@@ -0,0 +1,82 @@
+package frc.robot.controller;
+
+/**
+ * Where the end of the arm is, from the lift angle (gyro pitch, degrees from vertical) and the
+ * elevator extension in inches from the pivot. The longest extension that keeps the arm inside
+ * the max height and width is precomputed for every 0.1 degree, so the limit check is an array
+ * read.
+ */
+class ArmKinematics {
+    private static final int STEPS_PER_DEGREE = 10;
+    private static final double[] sin = new double[90*STEPS_PER_DEGREE + 1];
+    private static final double[] cos = new double[sin.length];
+    static {
+        for (int i = 0; i < sin.length; i++) {
+            double angle = Math.toRadians((double) i/STEPS_PER_DEGREE);
+            sin[i] = Math.sin(angle);
+            cos[i] = Math.cos(angle);
+        }
+    }
+
+    private final double[] maxExtension = new double[sin.length];
+    private double maxHeight = Double.NaN, maxWidth = Double.NaN;
+
+    /**
+     * Rebuilds the table when the limits change. Width limits the arm from 30 degrees and height
+     * up to 60 degrees. A limit of 0 or less is ignored.
+     */
+    void setLimits(double maxHeight, double maxWidth) {
+        if (maxHeight==this.maxHeight && maxWidth==this.maxWidth) return;
+        this.maxHeight = maxHeight;
+        this.maxWidth = maxWidth;
+        for (int i = 0; i < maxExtension.length; i++) {
+            double angle = (double) i/STEPS_PER_DEGREE;
+            double widthLimit = angle>=30 && maxWidth>0 ? maxWidth/sin[i] : Double.POSITIVE_INFINITY;
+            double heightLimit = angle<=60 && maxHeight>0 ? maxHeight/cos[i] : Double.POSITIVE_INFINITY;
+            double limit = Math.min(widthLimit, heightLimit);
+            maxExtension[i] = limit==Double.POSITIVE_INFINITY ? -1 : limit;
+        }
+    }
+
+    private static int index(double angle) {
+        int i = (int) Math.round(angle*STEPS_PER_DEGREE);
+        return i<0 ? 0 : i>=sin.length ? sin.length-1 : i;
+    }
+
+    // Inches, or -1 when neither limit applies
+    double getMaxExtension(double angle) {
+        return maxExtension[index(angle)];
+    }
+
+    // Shortest max extension at any angle from one angle to another, or -1 when no limit applies
+    double getMaxExtension(double fromAngle, double toAngle) {
+        int from = index(Math.min(fromAngle, toAngle)), to = index(Math.max(fromAngle, toAngle));
+        double min = -1;
+        for (int i = from; i <= to; i++) {
+            if (maxExtension[i]>=0 && (min<0 || maxExtension[i]<min)) min = maxExtension[i];
+        }
+        return min;
+    }
+
+    /**
+     * Shortest max extension while the lift turns its encoder by rotations from an angle, or -1
+     * when no limit applies. A NaN degreesPerRotation means the angles on the way are unknown, so
+     * every angle from minAngle to maxAngle is checked.
+     */
+    double getMaxExtension(double fromAngle, double rotations, double degreesPerRotation, double minAngle,
+            double maxAngle) {
+        if (rotations==0) return getMaxExtension(fromAngle);
+        if (Double.isNaN(degreesPerRotation)) return getMaxExtension(minAngle, maxAngle);
+        return getMaxExtension(fromAngle, fromAngle+rotations*degreesPerRotation);
+    }
+
+    // Inches in front of the pivot
+    double getReach(double angle, double extension) {
+        return extension*sin[index(angle)];
+    }
+
+    // Inches above the pivot
+    double getHeight(double angle, double extension) {
+        return extension*cos[index(angle)];
+    }
+}
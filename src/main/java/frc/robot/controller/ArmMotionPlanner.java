@@ -0,0 +1,89 @@
+package frc.robot.controller;
+
+import frc.robot.main.Constants.ElevatorConstants;
+import frc.robot.main.Constants.LiftConstants;
+
+/**
+ * Plans a lift and elevator move so that both finish together in the least time their velocity
+ * and acceleration limits allow. The slower axis runs its fastest trapezoid and the other's
+ * limits are scaled down so that the same shaped trapezoid takes as long. When the elevator would
+ * leave the extension envelope on the way, the move is split into segments: retract into the
+ * envelope, move both inside it, then extend to the target.
+ *
+ * <p>Positions are encoder rotations. Plans are kept in arrays so a move allocates nothing.
+ */
+class ArmMotionPlanner {
+    // Moves one axis toward a target with the given limits, returning true once it is there
+    interface Axis {
+        boolean moveTo(double target, double maxVelocity, double maxAcceleration);
+    }
+
+    private static final int MAX_SEGMENTS = 3;
+    private final double[] liftTarget = new double[MAX_SEGMENTS];
+    private final double[] liftVelocity = new double[MAX_SEGMENTS];
+    private final double[] liftAcceleration = new double[MAX_SEGMENTS];
+    private final double[] elevTarget = new double[MAX_SEGMENTS];
+    private final double[] elevRpm = new double[MAX_SEGMENTS];
+    private final double[] elevRpmPerSecond = new double[MAX_SEGMENTS];
+    private int segments = 0;
+    private int current = 0;
+    private double seconds = 0;
+
+    /**
+     * Plans from the current positions.
+     * @param elevLimit highest elevator position allowed while the lift moves, NaN for none
+     * @return planned seconds
+     */
+    double plan(double liftFrom, double liftTo, double elevFrom, double elevTo, double elevLimit) {
+        segments = 0;
+        current = 0;
+        seconds = 0;
+        double inside = Double.isNaN(elevLimit) ? Double.POSITIVE_INFINITY : elevLimit;
+        double elev = elevFrom;
+        if (elev>inside) {
+            add(liftFrom, liftFrom, elev, inside);
+            elev = inside;
+        }
+        double mid = Math.min(elevTo, inside);
+        add(liftFrom, liftTo, elev, mid);
+        if (elevTo>mid) add(liftTo, liftTo, mid, elevTo);
+        return seconds;
+    }
+
+    private void add(double liftFrom, double liftTo, double elevFrom, double elevTo) {
+        double liftSeconds = trapezoidSeconds(Math.abs(liftTo-liftFrom), LiftConstants.kMaxVelocity,
+            LiftConstants.kMaxAcceleration);
+        double elevSeconds = trapezoidSeconds(Math.abs(elevTo-elevFrom), ElevatorConstants.kMaxVelocityRpm/60,
+            ElevatorConstants.kMaxAccelRpmPerSecond/60);
+        double total = Math.max(liftSeconds, elevSeconds);
+        // Stretching a trapezoid in time by k divides its velocity by k and acceleration by k squared
+        double liftScale = total>0 && liftSeconds>0 ? liftSeconds/total : 1;
+        double elevScale = total>0 && elevSeconds>0 ? elevSeconds/total : 1;
+        int i = segments++;
+        liftTarget[i] = liftTo;
+        liftVelocity[i] = LiftConstants.kMaxVelocity*liftScale;
+        liftAcceleration[i] = LiftConstants.kMaxAcceleration*liftScale*liftScale;
+        elevTarget[i] = elevTo;
+        elevRpm[i] = ElevatorConstants.kMaxVelocityRpm*elevScale;
+        elevRpmPerSecond[i] = ElevatorConstants.kMaxAccelRpmPerSecond*elevScale*elevScale;
+        seconds += total;
+    }
+
+    // Fastest rest to rest move
+    static double trapezoidSeconds(double distance, double maxVelocity, double maxAcceleration) {
+        if (distance*maxAcceleration<=maxVelocity*maxVelocity) return 2*Math.sqrt(distance/maxAcceleration);
+        return distance/maxVelocity + maxVelocity/maxAcceleration;
+    }
+
+    /**
+     * Moves both axes along the current segment, going on to the next once both have reached it.
+     * @return true once the last segment is reached
+     */
+    boolean step(Axis lift, Axis elevator) {
+        if (current>=segments) return true;
+        boolean liftReached = lift.moveTo(liftTarget[current], liftVelocity[current], liftAcceleration[current]);
+        boolean elevReached = elevator.moveTo(elevTarget[current], elevRpm[current], elevRpmPerSecond[current]);
+        if (liftReached && elevReached) current++;
+        return current>=segments;
+    }
+}
@@ -0,0 +1,49 @@
+package frc.robot.controller;
+
+import frc.robot.interfaces.Action;
+import frc.robot.interfaces.ArmController;
+import frc.robot.interfaces.AutonPlan;
+import frc.robot.interfaces.Action.Sensor;
+import frc.robot.subsystem.AccelerometerSubsystem;
+import frc.robot.subsystem.GyroSubsystem;
+import frc.robot.subsystem.RobotState;
+import frc.robot.subsystem.RobotState.Signal;
+
+/**
+ * Evaluates the "until" condition of auton actions against the sensor snapshot of the tick.
+ * current is read from the resource the action uses: drive, then arm, then intake.
+ */
+class AutonConditions {
+    private final RobotState state = RobotState.getInstance();
+    private final AccelerometerSubsystem accelerometer = AccelerometerSubsystem.getInstance();
+    private final GyroSubsystem gyro = GyroSubsystem.getInstance();
+    private final ArmController armController;
+
+    AutonConditions(ArmController armController) {
+        this.armController = armController;
+    }
+
+    boolean met(AutonPlan plan, int i) {
+        Sensor sensor = plan.getUntilSensor(i);
+        if (sensor == null) return false;
+        if (sensor == Sensor.ArmAtTarget) return armController.isAtTarget();
+        double value = read(sensor, plan.getType(i).resources);
+        return plan.isUntilAbove(i) ? value > plan.getUntilValue(i) : value < plan.getUntilValue(i);
+    }
+
+    private double read(Sensor sensor, int resources) {
+        switch (sensor) {
+            case Tilt: return accelerometer.getTilt();
+            case Pitch: return gyro.getPitch();
+            case Roll: return gyro.getRoll();
+            case Yaw: return gyro.getYaw();
+            case Current:
+                if ((resources & Action.DRIVE) != 0)
+                    return state.get(Signal.DriveLeftCurrent) + state.get(Signal.DriveRightCurrent);
+                if ((resources & Action.ARM) != 0)
+                    return state.get(Signal.LiftCurrent) + state.get(Signal.ElevCurrent);
+                return state.get(Signal.IntakeCurrent);
+            default: return 0;
+        }
+    }
+}
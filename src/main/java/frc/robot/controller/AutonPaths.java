@@ -0,0 +1,70 @@
+package frc.robot.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryUtil;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.interfaces.AutonPlanFile;
+import frc.robot.util.RobotLogger;
+
+/**
+ * PathWeaver trajectories from the deploy paths folder, keyed by file name without the suffix.
+ * The json is parsed only on the first boot after a deploy, when it is converted into a binary
+ * cache file that later boots memory map. A Path action runs its trajectory from wherever the
+ * robot is when the action starts.
+ */
+class AutonPaths {
+    private static final String CACHE_SUFFIX = ".path";
+    private final Map<String, MappedTrajectory> paths = new HashMap<>();
+
+    // Call at startup and not in the match loop
+    void load() {
+        File dir = new File(Filesystem.getDeployDirectory(), "paths");
+        File cacheDir = new File(Filesystem.getOperatingDirectory(), "pathcache");
+        File[] files = dir.listFiles((d, name) -> name.endsWith(AutonPlanFile.PATH_SUFFIX));
+        if (files == null) return;
+        for (File file : files) {
+            String name = file.getName();
+            name = name.substring(0, name.length()-AutonPlanFile.PATH_SUFFIX.length());
+            try {
+                paths.put(name, load(file, new File(cacheDir, name + CACHE_SUFFIX)));
+            } catch (IOException e) {
+                DriverStation.reportError("Unable to load path " + file.getName() + ". " + e.getMessage(), false);
+            }
+        }
+        RobotLogger.info("Loaded paths:{}", paths.keySet());
+    }
+
+    private MappedTrajectory load(File json, File cache) throws IOException {
+        if (cache.lastModified() >= json.lastModified()) {
+            try {
+                return MappedTrajectory.map(cache);
+            } catch (IOException e) {
+                RobotLogger.info("Rebuilding path cache {}: {}", cache, e.getMessage());
+            }
+        }
+        Trajectory trajectory = TrajectoryUtil.fromPathweaverJson(json.toPath());
+        try {
+            MappedTrajectory.write(trajectory, cache);
+            return MappedTrajectory.map(cache);
+        } catch (IOException e) {
+            RobotLogger.info("Path cache {} not written: {}", cache, e.getMessage());
+            return MappedTrajectory.wrap(trajectory);
+        }
+    }
+
+    // null when there is no such path
+    MappedTrajectory get(String name) {
+        return paths.get(name);
+    }
+
+    double getSeconds(String name) {
+        MappedTrajectory path = paths.get(name);
+        return path == null ? 0 : path.getTotalTimeSeconds();
+    }
+}
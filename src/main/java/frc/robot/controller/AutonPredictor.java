@@ -0,0 +1,115 @@
+package frc.robot.controller;
+
+import edu.wpi.first.wpilibj.Preferences;
+import frc.robot.interfaces.AutonPlan;
+import frc.robot.interfaces.Action.ActionType;
+
+/**
+ * Dry runs an auton plan to predict how long each action takes. Move and Turn are stepped at the
+ * main loop period through the same speed ramps AutonWithEncoder uses, converting speed to motion
+ * with drive and turn rates measured during auton. Arm moves use the measured time to reach a
+ * target, paths take their trajectory time and timed actions take their magnitude in seconds.
+ * Measured rates are kept in Preferences so that they survive a reboot.
+ */
+public class AutonPredictor {
+    public static final double AUTON_SECONDS = 15.0;
+    private static final String DRIVE_RATE = "Auton Drive Rate"; // inches/sec at speed 1.0
+    private static final String TURN_RATE = "Auton Turn Rate"; // deg/sec at speed 1.0
+    private static final String ARM_SECONDS = "Auton Arm Sec"; // to reach an arm target
+    private static final double STEP = 0.02;
+    private static final double MAX_ACTION_SECONDS = 60;
+    private static final double MIN_MEASURE_SPEED = 0.2;
+    private static final double SMOOTHING = 0.05;
+
+    private final AutonWithEncoder auton;
+    private double driveRate, turnRate, armSeconds;
+    // Previous sample of the action being measured
+    private int lastAction = AutonPlan.NONE;
+    private double lastProgress, lastSpeed;
+    private long lastMillis;
+
+    AutonPredictor(AutonWithEncoder auton) {
+        this.auton = auton;
+        Preferences.initDouble(DRIVE_RATE, 20.0);
+        Preferences.initDouble(TURN_RATE, 45.0);
+        Preferences.initDouble(ARM_SECONDS, 2.0);
+        driveRate = Preferences.getDouble(DRIVE_RATE, 20.0);
+        turnRate = Preferences.getDouble(TURN_RATE, 45.0);
+        armSeconds = Preferences.getDouble(ARM_SECONDS, 2.0);
+    }
+
+    /**
+     * Fills actionEnd with the predicted time in seconds at which each action ends. Actions in a
+     * group start together and the group takes as long as its longest action, or its first for a
+     * deadline group.
+     * @return predicted total in seconds
+     */
+    public double predict(AutonPlan plan, double defaultSpeed, double[] actionEnd) {
+        double time = 0;
+        for (int first = 0; first < plan.size(); first = plan.getGroupLast(first) + 1) {
+            double groupSeconds = 0;
+            for (int i = first; i <= plan.getGroupLast(first); i++) {
+                double seconds = actionSeconds(plan, i, defaultSpeed);
+                if (plan.isDeadline(first) && i > first) seconds = Math.min(seconds, groupSeconds);
+                if (i < actionEnd.length) actionEnd[i] = time + seconds;
+                groupSeconds = Math.max(groupSeconds, seconds);
+            }
+            time += groupSeconds;
+        }
+        return time;
+    }
+
+    private double actionSeconds(AutonPlan plan, int i, double defaultSpeed) {
+        double maxSpeed = plan.getPlannedSpeed(i);
+        if (Double.isNaN(maxSpeed)) maxSpeed = defaultSpeed;
+        switch (plan.getType(i)) {
+            case Move:
+                return rampSeconds(plan.getMagnitude(i), maxSpeed, driveRate, false);
+            case Turn:
+                return rampSeconds(plan.getMagnitude(i), maxSpeed, turnRate, true);
+            case PCone: case PCube: case SArm:
+                return armSeconds;
+            case Path:
+                return auton.getPathSeconds(plan.getName(i));
+            case Stop:
+                return 0;
+            default:
+                return plan.getMagnitude(i);
+        }
+    }
+
+    private double rampSeconds(double remaining, double maxSpeed, double rate, boolean turn) {
+        double seconds = 0;
+        while (seconds < MAX_ACTION_SECONDS) {
+            double speed = turn ? auton.angleRemainingToSpeed(remaining) : auton.distanceRemainingToSpeed(remaining, maxSpeed);
+            if (speed == 0) break;
+            remaining -= speed * rate * STEP;
+            seconds += STEP;
+        }
+        return seconds;
+    }
+
+    // Called every main tick while Move or Turn runs, with the progress so far and speed commanded now
+    void observe(int action, ActionType type, double progress, double speed, long timeMillis) {
+        if (action == lastAction && timeMillis > lastMillis && Math.abs(lastSpeed) >= MIN_MEASURE_SPEED) {
+            double rate = Math.abs(progress - lastProgress) * 1000.0 / (timeMillis - lastMillis) / Math.abs(lastSpeed);
+            if (type == ActionType.Move) driveRate += SMOOTHING * (rate - driveRate);
+            else turnRate += SMOOTHING * (rate - turnRate);
+        }
+        lastAction = action;
+        lastProgress = progress;
+        lastSpeed = speed;
+        lastMillis = timeMillis;
+    }
+
+    void observeArm(double seconds) {
+        armSeconds += 4 * SMOOTHING * (seconds - armSeconds);
+    }
+
+    // Not for the match loop
+    public void save() {
+        Preferences.setDouble(DRIVE_RATE, driveRate);
+        Preferences.setDouble(TURN_RATE, turnRate);
+        Preferences.setDouble(ARM_SECONDS, armSeconds);
+    }
+}
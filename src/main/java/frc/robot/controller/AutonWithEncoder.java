@@ -1,60 +1,82 @@
 package frc.robot.controller;
 
-import java.util.ArrayList;
-
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import frc.robot.interfaces.Action;
+import frc.robot.interfaces.ArmController;
+import frc.robot.interfaces.AutonPlan;
 import frc.robot.interfaces.AutonomousController;
 import frc.robot.interfaces.DriveController;
 import frc.robot.interfaces.Action.ActionType;
+import frc.robot.main.ControlLoops;
+import frc.robot.util.RobotLogger;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Rate;
 
 public class AutonWithEncoder implements AutonomousController {
-    ArrayList<Action> actionMap = new ArrayList<Action>(25);
+    AutonPlan plan = new AutonPlan(0);
     DriveController driveController;
-    Action prevAction = null;
     int curOp = 0;
-    Double startLtPos, startRtPos;
     double autonMaxSpeed = 0.25;
     double encoderToDistanceConversion = 2.355;
-    long actionStartTime = 0;
     double startAngle;
     final String DIST_FACTOR = "Inches Per Unit";
     final String MAX_SPEED = "Auton Max Speed";
     final String CUR_ACTION  = "Auton Cur Action";
+    // Published by Telemetry, which builds the string only when due
+    ActionType curActionType = null;
+    int curMagnitude = 0;
+    double curRemaining = 0;
+    // Move and Turn speeds are recalculated every 5ms while the main loop is on that action
+    private final ControlLoops controlLoops = ControlLoops.getInstance();
+    private int seekAction = AutonPlan.NONE;
+    private double seekMaxSpeed = 0;
+    private long seekTick = -1;
+    private final AutonPredictor predictor = new AutonPredictor(this);
+    private final AutonConditions conditions;
+    private long lastTime = 0;
+    private final AutonPaths paths = new AutonPaths();
+    // Path being followed, which starts at the pose where its action started
+    private int pathAction = AutonPlan.NONE;
+    private MappedTrajectory activePath;
+    private Pose2d pathStart;
 
-    public AutonWithEncoder(DriveController driveController) {
+    public AutonWithEncoder(DriveController driveController, ArmController armController) {
         this.driveController = driveController;
+        this.conditions = new AutonConditions(armController);
         SmartDashboard.putNumber(MAX_SPEED, autonMaxSpeed);
         SmartDashboard.putString(CUR_ACTION, "");
         SmartDashboard.putNumber(DIST_FACTOR, encoderToDistanceConversion);
+        Telemetry.getInstance().addText(CUR_ACTION, Rate.Hz10,
+            () -> curActionType==null ? "None" : curActionType+" "+curRemaining+"/"+curMagnitude);
+        controlLoops.add("Auton Drive", 0.005, 0.001, this::seekAction);
+        paths.load();
     }
 
     @Override
-    public void autonomousInit(String[] autoOp) {
+    public void autonomousInit(AutonPlan plan) {
         curOp = 0;
-        prevAction = null;
-        actionMap.clear();
-        //System.out.println("Received " + autoOp.length + " autoOp items");
         startAngle = driveController.getYaw();
         autonMaxSpeed = SmartDashboard.getNumber(MAX_SPEED, autonMaxSpeed);
         encoderToDistanceConversion = SmartDashboard.getNumber(DIST_FACTOR, encoderToDistanceConversion);
-        actionStartTime = 0;
-        startLtPos = null;
-        startRtPos = null;
-        for (int i = 0; i < autoOp.length; i++) {
-            //System.out.println("Processing:" + autoOpr);
-            Action p = new Action(autoOp[i].trim());
-            if (p.speed==null) p.speed = autonMaxSpeed;
-            System.out.println("Adding:" + p);
-            actionMap.add(p);
-        }
+        seekAction = AutonPlan.NONE;
+        pathAction = AutonPlan.NONE;
+        activePath = null;
+        plan.restart(autonMaxSpeed);
+        this.plan = plan;
+        for (int i = 0; i < plan.size(); i++)
+            RobotLogger.info("Adding:{}", plan.toString(i));
+    }
+
+    @Override
+    public AutonPlan getPlan() {
+        return plan;
     }
 
     private double convertToDistance(double encodeLtDelta, double encoderRtDelta) {
         return encoderToDistanceConversion * ((encodeLtDelta+encoderRtDelta)/2.0);
     }
 
-    private double distanceRemainingToSpeed(double remaining, double maxSpeed) {
+    double distanceRemainingToSpeed(double remaining, double maxSpeed) {
         maxSpeed = Math.abs(maxSpeed);
         double absRemaining = Math.abs(remaining);
         if (absRemaining<2) return 0;
@@ -64,7 +86,7 @@ public class AutonWithEncoder implements AutonomousController {
         return (reverse?-speed:speed);
     }
 
-    private double angleRemainingToSpeed(double remaining) {
+    double angleRemainingToSpeed(double remaining) {
         double absRemaining = Math.abs(remaining);
         if (absRemaining<2) return 0;
         boolean reverse = remaining>0? false: true; //positive speed turns clockwise
@@ -72,13 +94,38 @@ public class AutonWithEncoder implements AutonomousController {
         return (reverse?-speed:speed);
     }
 
+    private double distanceMoved(int i) {
+        return convertToDistance(driveController.getLeftEncoderPosition()-plan.getStartLeft(i),
+            driveController.getRightEncoderPosition()-plan.getStartRight(i));
+    }
+
+    // Runs every 5ms. Stops short of completing the action, which is left to getNextAction.
+    private void seekAction() {
+        if (seekAction==AutonPlan.NONE || seekTick!=controlLoops.getMainTick()) return;
+        if (plan.getType(seekAction) == ActionType.Move) {
+            double speed = distanceRemainingToSpeed(plan.getMagnitude(seekAction)-distanceMoved(seekAction), seekMaxSpeed);
+            if (speed==0) driveController.stop();
+            else driveController.move(speed, 0);
+        } else {
+            double speed = angleRemainingToSpeed(plan.getMagnitude(seekAction)-getAngleTurned());
+            if (speed==0) driveController.stop();
+            else driveController.move(0, speed);
+        }
+    }
+
     @Override
-    public void actionComplete(Action action) {
-        System.out.println("Completed action:"+action);
-        startLtPos = startRtPos = null;
-        actionStartTime = 0;
-        prevAction = action;
-        curOp++;
+    public void actionComplete(int action) {
+        RobotLogger.info("Completed action:{}", plan.toString(action));
+        ActionType type = plan.getType(action);
+        if (type == ActionType.PCone || type == ActionType.PCube || type == ActionType.SArm)
+            predictor.observeArm((lastTime-plan.getStartMillis(action))/1000.0);
+        plan.markFinished(action);
+        if (action == seekAction) seekAction = AutonPlan.NONE;
+        // A group moves on once all its actions are finished, or its first for a deadline group
+        if (plan.getGroupFirst(action) == curOp && plan.isGroupFinished(curOp)) {
+            seekAction = AutonPlan.NONE;
+            curOp = plan.getGroupLast(curOp)+1;
+        }
     }
 
     private double getAngleTurned() {
@@ -86,77 +133,144 @@ public class AutonWithEncoder implements AutonomousController {
         return angleTurned;
     }
 
+    /**
+     * @return index of the first action in the current group, all of whose unfinished actions
+     * are to be performed, or NONE when all actions are done
+     */
     @Override
-    public Action getNextAction(long timeInAutonomous) {
-        Action chosenAction = null;
+    public int getNextAction(long timeInAutonomous) {
+        lastTime = timeInAutonomous;
+        while(curOp<plan.size()) {
+            int first = curOp;
+            double remaining = 0;
+            for (int i = first; i <= plan.getGroupLast(first) && curOp == first; i++) {
+                if (plan.isFinished(i)) continue;
+                double actionRemaining = updateAction(i, timeInAutonomous);
+                if (i == first) remaining = actionRemaining;
+            }
+            if (curOp == first) {
+                curActionType = plan.getType(first);
+                curMagnitude = plan.getMagnitude(first);
+                curRemaining = remaining;
+                return first;
+            }
+        }
+        curActionType = null;
+        curMagnitude = 0;
+        curRemaining = 0;
+        return AutonPlan.NONE;
+    }
+
+    // Sets the speed for the action this tick, or marks it done. Returns what is remaining of it.
+    private double updateAction(int chosenAction, long timeInAutonomous) {
         double remaining = 0;
-        while(curOp<actionMap.size()) {
-            if (startLtPos==null) startLtPos =  driveController.getLeftEncoderPosition();
-            if (startRtPos==null) startRtPos =  driveController.getRightEncoderPosition();
-            chosenAction = actionMap.get(curOp);
-            /*if (prevAction==null || !prevAction.equals(chosenAction)) {
-                System.out.println("Current action:"+chosenAction);
-                prevAction = chosenAction;
-            }*/
-            if (actionStartTime==0) actionStartTime = timeInAutonomous;
-            double currentLtPos = driveController.getLeftEncoderPosition();
-            double currentRtPos = driveController.getRightEncoderPosition();
-            if (chosenAction.type == ActionType.Move) {
-                double distMoved = convertToDistance(currentLtPos-startLtPos, currentRtPos-startRtPos);
-                remaining = chosenAction.magnitude-distMoved;
-                System.out.println("Distance Moved:"+distMoved+". Remaining:"+remaining);
-                chosenAction.speed = distanceRemainingToSpeed(remaining, chosenAction.speed);
-                if (chosenAction.speed==0) chosenAction.speed = null; // Trigger to move to next action
-                break;
-            } else if ((chosenAction.type == ActionType.Cruise) || (chosenAction.type == ActionType.Station)) {
-                remaining = chosenAction.magnitude*1000-(timeInAutonomous-actionStartTime);
-                if (remaining<=10)
-                    chosenAction.speed = null;
-                break;
-            } else if (chosenAction.type == ActionType.Hold) {
-                remaining = chosenAction.magnitude*1000-(timeInAutonomous-actionStartTime);
-                System.out.println(chosenAction.type+".. time:"+chosenAction.magnitude*1000+". Remaining:"+remaining);
-                if (remaining<=10)
-                    chosenAction.speed = null;
-                else {
-                    double distMoved = convertToDistance(currentLtPos-startLtPos, currentRtPos-startRtPos);
-                    remaining = -distMoved;
-                    System.out.println("Distance shifted:"+distMoved);
-                    chosenAction.speed = distanceRemainingToSpeed(remaining, chosenAction.speed);
-                }
-                break;
-            } else if (chosenAction.type == ActionType.Turn) {
-                //double angleTurned = convertToAngle(currentLtPos-startLtPos, currentRtPos-startRtPos);
-                double angleTurned = getAngleTurned();
-                remaining = chosenAction.magnitude-angleTurned;
-                System.out.println("Angle Turned:"+angleTurned+". Remaining:"+remaining);
-                chosenAction.speed = angleRemainingToSpeed(remaining);
-                if (chosenAction.speed==0) chosenAction.speed = null;
-                break;
-            } else if (chosenAction.type == ActionType.PCone || chosenAction.type== ActionType.PCube || chosenAction.type== ActionType.SArm ) {
-                break;
-            } else if (chosenAction.type == ActionType.RCone || chosenAction.type== ActionType.RCube || chosenAction.type== ActionType.GCone || chosenAction.type== ActionType.GCube ) {
-                remaining = chosenAction.magnitude*1000-(timeInAutonomous-actionStartTime);
-                System.out.println(chosenAction.type+".. time:"+chosenAction.magnitude*1000+". Remaining:"+remaining);
-                if (remaining<=10)
-                    chosenAction.speed = null;
-                else
-                    chosenAction.speed = 1.0;
-                break;
-            } else if (chosenAction.type == ActionType.Stop) {
-                chosenAction.speed = null;
-                break;
-            } else {
-                System.out.println("Ignoring "+chosenAction);
-                chosenAction.speed = null;
-                actionComplete(chosenAction);
+        if (!plan.isStarted(chosenAction))
+            plan.start(chosenAction, driveController.getLeftEncoderPosition(), driveController.getRightEncoderPosition(), timeInAutonomous);
+        ActionType type = plan.getType(chosenAction);
+        long elapsed = timeInAutonomous-plan.getStartMillis(chosenAction);
+        if (type == ActionType.Move) {
+            double distMoved = distanceMoved(chosenAction);
+            remaining = plan.getMagnitude(chosenAction)-distMoved;
+            RobotLogger.debug("Distance Moved:{}. Remaining:{}", distMoved, remaining);
+            double speed = distanceRemainingToSpeed(remaining, plan.getSpeed(chosenAction));
+            if (speed==0) plan.markDone(chosenAction); // Trigger to move to next action
+            else {
+                plan.setSpeed(chosenAction, speed);
+                seek(chosenAction, speed);
+            }
+            predictor.observe(chosenAction, type, distMoved, speed, timeInAutonomous);
+        } else if ((type == ActionType.Cruise) || (type == ActionType.Station)) {
+            remaining = plan.getMagnitude(chosenAction)*1000-elapsed;
+            if (remaining<=10)
+                plan.markDone(chosenAction);
+        } else if (type == ActionType.Hold) {
+            remaining = plan.getMagnitude(chosenAction)*1000-elapsed;
+            RobotLogger.debug("{}.. time:{}. Remaining:{}", type, plan.getMagnitude(chosenAction)*1000, remaining);
+            if (remaining<=10)
+                plan.markDone(chosenAction);
+            else {
+                double distMoved = distanceMoved(chosenAction);
+                remaining = -distMoved;
+                RobotLogger.debug("Distance shifted:{}", distMoved);
+                plan.setSpeed(chosenAction, distanceRemainingToSpeed(remaining, plan.getSpeed(chosenAction)));
             }
+        } else if (type == ActionType.Turn) {
+            //double angleTurned = convertToAngle(currentLtPos-startLtPos, currentRtPos-startRtPos);
+            double angleTurned = getAngleTurned();
+            remaining = plan.getMagnitude(chosenAction)-angleTurned;
+            RobotLogger.debug("Angle Turned:{}. Remaining:{}", angleTurned, remaining);
+            double speed = angleRemainingToSpeed(remaining);
+            if (speed==0) plan.markDone(chosenAction);
+            else {
+                plan.setSpeed(chosenAction, speed);
+                seek(chosenAction, autonMaxSpeed);
+            }
+            predictor.observe(chosenAction, type, angleTurned, speed, timeInAutonomous);
+        } else if (type == ActionType.PCone || type== ActionType.PCube || type== ActionType.SArm ) {
+            // Completed by the caller once the arm reaches the target
+        } else if (type == ActionType.RCone || type== ActionType.RCube || type== ActionType.GCone || type== ActionType.GCube ) {
+            remaining = plan.getMagnitude(chosenAction)*1000-elapsed;
+            RobotLogger.debug("{}.. time:{}. Remaining:{}", type, plan.getMagnitude(chosenAction)*1000, remaining);
+            if (remaining<=10)
+                plan.markDone(chosenAction);
+            else
+                plan.setSpeed(chosenAction, 1.0);
+        } else if (type == ActionType.Path) {
+            remaining = followPath(chosenAction, elapsed);
+        } else if (type == ActionType.Stop) {
+            plan.markDone(chosenAction);
+        } else {
+            RobotLogger.info("Ignoring {}", type);
+            plan.markDone(chosenAction);
+            actionComplete(chosenAction);
+        }
+        if (!plan.isDone(chosenAction) && conditions.met(plan, chosenAction)) {
+            RobotLogger.info("Ending early:{}", plan.toString(chosenAction));
+            plan.markDone(chosenAction);
         }
-        if (chosenAction!=null)
-            SmartDashboard.putString(CUR_ACTION, chosenAction.type+" "+remaining+"/"+chosenAction.magnitude);
-        else
-            SmartDashboard.putString(CUR_ACTION, "None");
-        return chosenAction;
+        return remaining;
+    }
+
+    // Drives along the path with RAMSETE. Returns the seconds remaining.
+    private double followPath(int action, long elapsed) {
+        if (action != pathAction) {
+            MappedTrajectory path = paths.get(plan.getName(action));
+            if (path == null) {
+                RobotLogger.info("No path {}", plan.getName(action));
+                plan.markDone(action);
+                return 0;
+            }
+            activePath = path;
+            pathStart = driveController.getPose();
+            pathAction = action;
+        }
+        double remaining = activePath.getTotalTimeSeconds()-elapsed/1000.0;
+        if (remaining <= 0) {
+            plan.markDone(action);
+            pathAction = AutonPlan.NONE;
+        } else driveController.follow(activePath.sample(elapsed/1000.0, pathStart));
+        return remaining;
+    }
+
+    double getPathSeconds(String name) {
+        return paths.getSeconds(name);
+    }
+
+    private void seek(int action, double maxSpeed) {
+        seekAction = action;
+        seekMaxSpeed = maxSpeed;
+        seekTick = controlLoops.getMainTick();
+    }
+
+    @Override
+    public double predictDuration(AutonPlan plan, double[] actionEnd) {
+        autonMaxSpeed = SmartDashboard.getNumber(MAX_SPEED, autonMaxSpeed);
+        return predictor.predict(plan, autonMaxSpeed, actionEnd);
+    }
+
+    @Override
+    public void disabledInit() {
+        predictor.save();
     }
 
     @Override
@@ -165,8 +279,8 @@ public class AutonWithEncoder implements AutonomousController {
     }
 
     @Override
-    public Action calibrate(int calibrationCount, long timeInTest) {
-        return null;
+    public int calibrate(int calibrationCount, long timeInTest) {
+        return AutonPlan.NONE;
     }
 
     @Override
@@ -1,21 +1,22 @@
 package frc.robot.controller;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import frc.robot.interfaces.Action;
+import frc.robot.interfaces.AutonPlan;
 import frc.robot.interfaces.AutonomousController;
 import frc.robot.interfaces.Action.ActionType;
 import frc.robot.main.DashboardItem;
+import frc.robot.main.Tunables;
+import frc.robot.util.RobotLogger;
 
 public class AutonomousControllerImpl implements AutonomousController {
-    ArrayList<Action> speedMap = new ArrayList<Action>(5);
-    ArrayList<Action> rotateMap = new ArrayList<Action>(5);
-    ArrayList<Action> actionMap = new ArrayList<Action>(50);
+    // Distance and angle covered per second at each of these speeds, fastest first
+    final double[] mapSpeeds = {1.0, 0.5, 0.25, 0.05};
+    final int[] speedMap = new int[mapSpeeds.length]; // inches
+    final int[] rotateMap = new int[mapSpeeds.length]; // degrees
+    AutonPlan plan = new AutonPlan(50);
+    int curOp = 0;
     int calibrationsCount;
-    Action[] calibrateSequence = new Action[10];
+    int calibrateStop = AutonPlan.NONE;
     final int CALIBRATION_TIME = 5000; // in milli sec
     
     AutonomousControllerImpl() {
@@ -23,21 +24,22 @@ public class AutonomousControllerImpl implements AutonomousController {
     }
 
     @Override
-    public void autonomousInit(String[] autoOp) {
+    public void autonomousInit(AutonPlan script) {
         initMagnitudeToPhysicalMap();
-        setOperationList(autoOp);
+        setOperationList(script);
     }
     
-    public void setOperationList(String[] autoOp) {
-        System.out.println("Received " + autoOp.length + " autoOp items");
+    // Converts the distance and angle of each op into timed actions
+    public void setOperationList(AutonPlan script) {
+        RobotLogger.info("Received {} autoOp items", script.size());
         int time = 0;
-        for (int i = 0; i < autoOp.length; i++) {
-            String op = autoOp[i].trim();
-            System.out.println("Processing:" + op);
-            int spaceIndx = op.indexOf(' ');
-            ActionType action = ActionType.valueOf(op.substring(0,spaceIndx));
-            Integer distangl = Integer.parseInt(op.substring(spaceIndx+1));
-            List<Action> map = null;
+        plan.clear();
+        curOp = 0;
+        for (int i = 0; i < script.size(); i++) {
+            RobotLogger.info("Processing:{}", script.toString(i));
+            ActionType action = script.getType(i);
+            int distangl = script.getMagnitude(i);
+            int[] map = null;
             switch (action) {
                 case Move: 
                     map = speedMap;
@@ -52,12 +54,11 @@ public class AutonomousControllerImpl implements AutonomousController {
                 case PCube:
                 case RCube:
                     time += distangl;
-                    Action p = new Action(1.0,time * 1000,action);
-                    System.out.println("Adding " + p);
-                    actionMap.add(p);
+                    int p = plan.add(action, time * 1000, 1.0);
+                    if (p!=AutonPlan.NONE) RobotLogger.info("Adding {}", plan.toString(p));
                     break;
                 default:
-                    System.out.println("Unknown operation:"+action);
+                    RobotLogger.info("Unknown operation:{}", action);
             }
             if (map!=null) {
                 boolean reverse = false;
@@ -65,91 +66,94 @@ public class AutonomousControllerImpl implements AutonomousController {
                     reverse = true;
                     distangl = -distangl;
                 }
-                for (Action entPair : map) {
-                    // System.out.println("Checking "+entPair);
-                    if (entPair.magnitude>0 && entPair.magnitude <= distangl) {
-                        Integer duration = distangl / entPair.magnitude;
-                        distangl = distangl % entPair.magnitude;
+                for (int m = 0; m < map.length; m++) {
+                    if (map[m]>0 && map[m] <= distangl) {
+                        int duration = distangl / map[m];
+                        distangl = distangl % map[m];
                         time += duration;
-                        Action p = new Action(reverse ? -entPair.speed : entPair.speed, time * 1000, action);
-                        actionMap.add(p);
-                        System.out.println("Adding " + p + ". Remaining:" + distangl);
+                        int p = plan.add(action, time * 1000, reverse ? -mapSpeeds[m] : mapSpeeds[m]);
+                        if (p!=AutonPlan.NONE) RobotLogger.info("Adding {}. Remaining:{}", plan.toString(p), distangl);
                     }
                 }
             }
         }
-        System.out.println("COMPLETED processing " + autoOp.length + " autoOp items");
+        RobotLogger.info("COMPLETED processing {} autoOp items", script.size());
     }
 
     @Override
-    public Action getNextAction(long timeInAutonomous) {
-        Action chosenAction = null;
-        Iterator<Action> itr = actionMap.iterator();
-        while (itr.hasNext()) {
-            Action action = itr.next();
-            // System.out.println("Checking: "+action);
-            if (timeInAutonomous-action.magnitude >= -10) {
-                System.out.println("Removing completed action:" + action);
-                itr.remove();
+    public int getNextAction(long timeInAutonomous) {
+        while (curOp<plan.size()) {
+            // Magnitude is the time by which the action ends
+            if (timeInAutonomous-plan.getMagnitude(curOp) >= -10) {
+                RobotLogger.info("Removing completed action:{}", plan.toString(curOp));
+                curOp++;
             } else {
-                chosenAction = action;
-                break;
+                return curOp;
             }
         }
-        return chosenAction;
+        return AutonPlan.NONE;
     }
 
     @Override
-    public Action calibrate(int currentCalibration, long timeInCalibration) {
+    public int calibrate(int currentCalibration, long timeInCalibration) {
         if (currentCalibration>calibrationsCount) 
-            return null;
+            return AutonPlan.NONE;
         else {
             if (timeInCalibration<CALIBRATION_TIME) 
-                return calibrateSequence[currentCalibration-1]; 
+                return currentCalibration-1; 
             else
-                return new Action(null, null, ActionType.Stop); // Nothing more to do for this count
+                return calibrateStop; // Nothing more to do for this count
         }
     }
+
+    @Override
+    public AutonPlan getPlan() {
+        return plan;
+    }
     
     // Update these values after calibration in code or smart dashboard
     void initMagnitudeToPhysicalMap() {
-        speedMap.add(new Action(1.0, (int)SmartDashboard.getNumber(DashboardItem.DistOn_100.getKey(), DashboardItem.DistOn_100.getDefaultValue()))); // Speed value of 1.0 results in 20 inches/sec
-        speedMap.add(new Action(0.5, (int)SmartDashboard.getNumber(DashboardItem.DistOn_50.getKey(), DashboardItem.DistOn_50.getDefaultValue()))); 
-        speedMap.add(new Action(0.25,(int)SmartDashboard.getNumber(DashboardItem.DistOn_25.getKey(), DashboardItem.DistOn_25.getDefaultValue()))); 
-        speedMap.add(new Action(0.05,(int)SmartDashboard.getNumber(DashboardItem.DistOn_10.getKey(), DashboardItem.DistOn_10.getDefaultValue()))); 
-        System.out.println("SpeedToDistance Map");
-        for (Action p: speedMap) {
-            System.out.println(p);
+        speedMap[0] = (int)Tunables.get(DashboardItem.DistOn_100).get(); // Speed value of 1.0 results in 20 inches/sec
+        speedMap[1] = (int)Tunables.get(DashboardItem.DistOn_50).get();
+        speedMap[2] = (int)Tunables.get(DashboardItem.DistOn_25).get();
+        speedMap[3] = (int)Tunables.get(DashboardItem.DistOn_10).get();
+        RobotLogger.info("SpeedToDistance Map");
+        for (int m = 0; m < mapSpeeds.length; m++) {
+            RobotLogger.info("{}in@{}", speedMap[m], mapSpeeds[m]);
         }
 
-        rotateMap.add(new Action(1.0, (int)SmartDashboard.getNumber(DashboardItem.RotaOn_100.getKey(), DashboardItem.RotaOn_100.getDefaultValue())));  // Rotation value of 1.0 results in 45 deg/sec
-        rotateMap.add(new Action(0.5, (int)SmartDashboard.getNumber(DashboardItem.RotaOn_50.getKey(), DashboardItem.RotaOn_50.getDefaultValue()))); 
-        rotateMap.add(new Action(0.25,(int)SmartDashboard.getNumber(DashboardItem.RotaOn_25.getKey(), DashboardItem.RotaOn_25.getDefaultValue()))); 
-        rotateMap.add(new Action(0.05,(int)SmartDashboard.getNumber(DashboardItem.RotaOn_10.getKey(), DashboardItem.DistOn_10.getDefaultValue()))); 
-        System.out.println("SpeedToAngle Map");
-        for (Action p: rotateMap) {
-            System.out.println(p);
+        rotateMap[0] = (int)Tunables.get(DashboardItem.RotaOn_100).get(); // Rotation value of 1.0 results in 45 deg/sec
+        rotateMap[1] = (int)Tunables.get(DashboardItem.RotaOn_50).get();
+        rotateMap[2] = (int)Tunables.get(DashboardItem.RotaOn_25).get();
+        rotateMap[3] = (int)Tunables.get(DashboardItem.RotaOn_10).get();
+        RobotLogger.info("SpeedToAngle Map");
+        for (int m = 0; m < mapSpeeds.length; m++) {
+            RobotLogger.info("{}deg@{}", rotateMap[m], mapSpeeds[m]);
         }
     }
 
     @Override
     public void calibrationInit(int calibrationCycle) {
-        calibrationsCount=0;
-        calibrateSequence[calibrationsCount++] = new Action(1.0, null, ActionType.Move); //Move for 5 sec at max speed
-        calibrateSequence[calibrationsCount++] = new Action(0.5, null, ActionType.Move); //Move for 5 sec at half speed
-        calibrateSequence[calibrationsCount++] = new Action(0.25, null, ActionType.Move); //Move for 5 sec at qtr speed
-        calibrateSequence[calibrationsCount++] = new Action(0.1, null, ActionType.Move); //Move for 5 sec at 10% of max speed
-
-        calibrateSequence[calibrationsCount++] = new Action(1.0, null, ActionType.Turn); //Turn for 5 sec at max speed
-        calibrateSequence[calibrationsCount++] = new Action(0.5, null, ActionType.Turn); //Turn for 5 sec at half speed      
-        calibrateSequence[calibrationsCount++] = new Action(0.25, null, ActionType.Turn); //Turn for 5 sec at qtr speed      
-        calibrateSequence[calibrationsCount++] = new Action(0.1, null, ActionType.Turn); //Turn for 5 sec at 10% max speed
+        plan.clear();
+        plan.add(ActionType.Move, 0, 1.0); //Move for 5 sec at max speed
+        plan.add(ActionType.Move, 0, 0.5); //Move for 5 sec at half speed
+        plan.add(ActionType.Move, 0, 0.25); //Move for 5 sec at qtr speed
+        plan.add(ActionType.Move, 0, 0.1); //Move for 5 sec at 10% of max speed
+
+        plan.add(ActionType.Turn, 0, 1.0); //Turn for 5 sec at max speed
+        plan.add(ActionType.Turn, 0, 0.5); //Turn for 5 sec at half speed      
+        plan.add(ActionType.Turn, 0, 0.25); //Turn for 5 sec at qtr speed      
+        plan.add(ActionType.Turn, 0, 0.1); //Turn for 5 sec at 10% max speed
+        calibrationsCount = plan.size();
+
+        calibrateStop = plan.add(ActionType.Stop, 0, 0);
+        plan.markDone(calibrateStop);
     }
 
     private void initDashboard() {
-        System.out.println("Initializing dashboard");
+        RobotLogger.info("Initializing dashboard");
         for(DashboardItem m : DashboardItem.values()) { 
-          System.out.println("Adding "+m.getKey() + " with "+m.getDefaultValue());
+          RobotLogger.info("Adding {} with {}", m.getKey(), m.getDefaultValue());
           SmartDashboard.putNumber(m.getKey(), m.getDefaultValue());
        }
       }
@@ -160,6 +164,15 @@ public class AutonomousControllerImpl implements AutonomousController {
       }
 
     @Override
-    public void actionComplete(Action action) {
+    public void actionComplete(int action) {
+    }
+
+    @Override
+    public double predictDuration(AutonPlan plan, double[] actionEnd) {
+        return Double.NaN;
+    }
+
+    @Override
+    public void disabledInit() {
     }
-}
\ No newline at end of file
+}
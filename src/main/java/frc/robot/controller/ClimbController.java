@@ -1,8 +1,8 @@
 package frc.robot.controller;
 
-import java.util.Date;
-
 import frc.robot.subsystem.AccelerometerSubsystem;
+import frc.robot.util.RobotLogger;
+import frc.robot.util.Stopwatch;
 
 public class ClimbController {
     public enum States {APPROACH_STATION, CLIMB_STATION, CENTER_STATION, HOLD_POSITION};
@@ -10,7 +10,7 @@ public class ClimbController {
     private States state = States.APPROACH_STATION;
     private int maxSpeedClimbTime = 2000, centerTime = 2000; // In milisec
     private double onChargeStationTilt = 13.0;
-    private Date startTime;
+    private Stopwatch stateTimer = new Stopwatch();
     private double levelTilt = 6.0;
     AccelerometerSubsystem accelerometer = AccelerometerSubsystem.getInstance();
 
@@ -26,54 +26,54 @@ public class ClimbController {
         return state;
     }
 
-    public Double getClimbSpeed(double maxSpeed) {
+    // Returns NaN when there is nothing more to do
+    public double getClimbSpeed(double maxSpeed) {
         double tilt = accelerometer.getTilt();
-        Date currentTime = new Date();
-        long elapsedTime = startTime!=null?currentTime.getTime() - startTime.getTime(): 0;
+        long elapsedTime = stateTimer.elapsedMillis();
         switch (state) {
             case APPROACH_STATION: // Approch at maxSpeed and climb at that speed for climbTimeInSec.. Go to next state when tilt detected
                 if (tilt > onChargeStationTilt) {
                     state = States.CLIMB_STATION;
-                    System.out.println("Stating climb..tilt:"+tilt);
-                    startTime = currentTime; // starting climb
+                    RobotLogger.info("Stating climb..tilt:{}", tilt);
+                    stateTimer.start(); // starting climb
                 }
                 return maxSpeed;
             
             case CLIMB_STATION: // Climb at maxSpeed and then at half speed.. Go to next state once level is detected
                 if (tilt < levelTilt) {
                     state = States.CENTER_STATION;
-                    System.out.println("Stating centering on station..tilt:"+tilt);
-                    startTime = new Date(); // starting centering
+                    RobotLogger.info("Stating centering on station..tilt:{}", tilt);
+                    stateTimer.start(); // starting centering
                 }
                 return (elapsedTime>maxSpeedClimbTime)?  maxSpeed/2.0 : maxSpeed;
 
             case CENTER_STATION:  // Move at half speed on station to position robo at center
                 if (Math.abs(tilt) <= levelTilt / 2) {
                     if (elapsedTime > centerTime) {
-                        System.out.println("Centering done.. Holding..tilt:"+tilt);
+                        RobotLogger.info("Centering done.. Holding..tilt:{}", tilt);
                         state = States.HOLD_POSITION;
-                        startTime = new Date(); // starting on station
+                        stateTimer.start(); // starting on station
                     }
                 }
                 if (tilt >= levelTilt) {
-                    System.out.println("Adjusting..tilt:"+tilt);
+                    RobotLogger.debug("Adjusting..tilt:{}", tilt);
                     return 0.1;
                 } else if (tilt <= -levelTilt) {
-                    System.out.println("Adjusting..tilt:"+tilt);
+                    RobotLogger.debug("Adjusting..tilt:{}", tilt);
                     return -0.1;
                 } else
                     return 0.005;
             case HOLD_POSITION:
                 if (tilt-levelTilt >= 0.1) {
-                    System.out.println("Adjusting..tilt:"+tilt);
+                    RobotLogger.debug("Adjusting..tilt:{}", tilt);
                     return 0.1;
                 } else if (tilt <= -levelTilt) {
-                    System.out.println("Adjusting..tilt:"+tilt);
+                    RobotLogger.debug("Adjusting..tilt:{}", tilt);
                     return -0.1;
                 }
                 return 0.0;
         }
-        return null;
+        return Double.NaN;
     }
 
     public void simulationPeriodic(long tickCount) {
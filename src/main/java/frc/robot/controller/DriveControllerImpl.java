@@ -1,23 +1,53 @@
 package frc.robot.controller;
 
+import edu.wpi.first.math.controller.RamseteController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.interfaces.ArmController;
 import frc.robot.interfaces.DriveController;
+import frc.robot.main.Tunables;
+import frc.robot.main.Constants.AutoConstants;
 import frc.robot.subsystem.DriveSubsystem;
+import frc.robot.subsystem.DriveSubsystemWithOdometry;
 import frc.robot.subsystem.GyroSubsystem;
+import frc.robot.subsystem.RobotState;
+import frc.robot.util.RobotClock;
+import frc.robot.util.RobotLogger;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Rate;
 
 public class DriveControllerImpl implements DriveController {
     private GyroSubsystem gyro = GyroSubsystem.getInstance();
     private DriveSubsystem driveSubsystem = new DriveSubsystem();
-    private double rotAccLimit = 0.1;
+    private DriveSubsystemWithOdometry odometry = new DriveSubsystemWithOdometry(driveSubsystem);
+    private RamseteController ramsete = new RamseteController(AutoConstants.kRamseteB, AutoConstants.kRamseteZeta);
+    private final RobotState state = RobotState.getInstance();
+    private long poseMicros = -1;
+    private Pose2d pose = new Pose2d();
+    private double rotAccLimit = 0.1; // Per 20ms
+    private long lastMoveMicros = 0;
+    private final TipGovernor tipGovernor = new TipGovernor();
 
     public DriveControllerImpl() {
         SmartDashboard.putBoolean(RESET_ENCODER, false);
+        SmartDashboard.putBoolean(CLOSED_LOOP_DRIVE, false);
         SmartDashboard.putNumber(ROTATIONAL_ACC_LIMIT, rotAccLimit);
+        Telemetry.getInstance().addNumber(ENCODER_RT_POS, Rate.Hz10, 0.01, this::getRightEncoderPosition);
+        Telemetry.getInstance().addNumber(ENCODER_LT_POS, Rate.Hz10, 0.01, this::getLeftEncoderPosition);
+        Telemetry.getInstance().addNumber(ACC_LIMIT, Rate.Hz10, 0.1, tipGovernor::getLimit);
+    }
+
+    @Override
+    public void setArm(ArmController arm) {
+        tipGovernor.setArm(arm);
     }
 
     public void init() {
         driveSubsystem.init();  
         gyro.init();
+        odometry.resetOdometry(new Pose2d());
+        poseMicros = -1;
     }
 
     @Override
@@ -29,29 +59,39 @@ public class DriveControllerImpl implements DriveController {
     public void stop() {
         if ((driveSubsystem.getCurrentSpeed()!=0) || (driveSubsystem.getCurrentRotation()!=0)) {
             driveSubsystem.stopMotor();
-            System.out.println("Not moving");
+            RobotLogger.info("Not moving");
         }
         driveSubsystem.arcadeDrive(0, 0);
     }
 
     @Override
     public void move(double speed, double rotation) {
+        // move() is also called from faster control loops, so scale the limit by the time since the last call
+        long now = RobotClock.nowMicros();
+        double dt = lastMoveMicros==0 ? 0.02 : Math.min((now-lastMoveMicros)/1e6, 0.02);
+        lastMoveMicros = now;
         boolean speedChange = driveSubsystem.getCurrentSpeed() != speed;
         boolean rotChange = rotation != driveSubsystem.getCurrentRotation();
         if ((speedChange) || (rotChange)) {
             if (rotChange) {
-                rotAccLimit = SmartDashboard.getNumber(ROTATIONAL_ACC_LIMIT, rotAccLimit);
+                rotAccLimit = Tunables.ROTATIONAL_ACC_LIMIT.get();
                 if (rotAccLimit!=0) {
+                    double limit = rotAccLimit*dt/0.02;
                     double diff = rotation-driveSubsystem.getCurrentRotation();
-                    if ((rotation>0 && diff>rotAccLimit) || (rotation<0&&diff<-rotAccLimit)) {
-                        System.out.println("Limiting rotational acceleration to "+rotAccLimit);
-                        rotation = driveSubsystem.getCurrentRotation() + (diff>0?rotAccLimit:-rotAccLimit);
+                    if ((rotation>0 && diff>limit) || (rotation<0&&diff<-limit)) {
+                        RobotLogger.debug("Limiting rotational acceleration to {}", limit);
+                        rotation = driveSubsystem.getCurrentRotation() + (diff>0?limit:-limit);
                     }
                 }
             }
-            System.out.println("Moving at speed:" + speed + ", rotation:" + rotation);
+            tipGovernor.update();
+            double maxSpeed = driveSubsystem.getMaxSpeed();
+            speed = tipGovernor.limitSpeed(driveSubsystem.getCurrentSpeed(), speed, dt, maxSpeed);
+            rotation = tipGovernor.limitRotation(driveSubsystem.getCurrentRotation(), rotation, dt, maxSpeed);
+            RobotLogger.debug("Moving at speed:{}, rotation:{}", speed, rotation);
         }
-        driveSubsystem.arcadeDrive(speed, rotation);
+        if (Tunables.CLOSED_LOOP_DRIVE.get()) driveSubsystem.velocityDrive(speed, rotation);
+        else driveSubsystem.arcadeDrive(speed, rotation);
     }
 
     @Override
@@ -74,14 +114,29 @@ public class DriveControllerImpl implements DriveController {
         return gyro.getYaw();
     }
 
+    // Read from the odometry thread at most once per sensor snapshot, so a tick sees one pose
     @Override
-    public void periodic(long tickCount) {
-        //if ((tickCount & 0x1111) == 0x1111) 
-        {
-            SmartDashboard.putNumber(DriveController.ENCODER_RT_POS, getRightEncoderPosition());
-            SmartDashboard.putNumber(DriveController.ENCODER_LT_POS, getLeftEncoderPosition());
+    public Pose2d getPose() {
+        if (poseMicros != state.getCaptureMicros()) {
+            pose = odometry.getPose();
+            poseMicros = state.getCaptureMicros();
         }
-        //driveSubsystem.updateOdometry();
+        return pose;
+    }
+
+    @Override
+    public Pose2d getPoseAt(long timeMicros) {
+        return odometry.getPoseAt(timeMicros);
+    }
+
+    @Override
+    public void follow(Trajectory.State goal) {
+        odometry.drive(ramsete.calculate(getPose(), goal));
+    }
+
+    @Override
+    public void periodic(long tickCount) {
+        // Encoder positions are published by Telemetry
     }
 
     @Override
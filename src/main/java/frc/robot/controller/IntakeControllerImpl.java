@@ -3,6 +3,7 @@ package frc.robot.controller;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.interfaces.IntakeController;
 import frc.robot.subsystem.IntakeSubsystem;
+import frc.robot.util.RobotLogger;
 
 public class IntakeControllerImpl implements IntakeController {
     IntakeSubsystem intakeSubsytem = new IntakeSubsystem();
@@ -18,13 +19,13 @@ public class IntakeControllerImpl implements IntakeController {
         stopped = false;
         currentPiece = ItemType.Cone;
         SmartDashboard.putString(CURRENT_PIECE, currentPiece.name());
-        System.out.println("Grab:" + currentPiece);
+        RobotLogger.debug("Grab:{}", currentPiece);
         intakeSubsytem.grab(currentPiece, speed);
     }
 
     public void releaseCone(double speed) {
         stopped = false;
-        System.out.println("Release Cone"); 
+        RobotLogger.debug("Release Cone"); 
         intakeSubsytem.release(ItemType.Cone, speed);
         currentPiece = null;
         SmartDashboard.putString(CURRENT_PIECE, "None");
@@ -34,13 +35,13 @@ public class IntakeControllerImpl implements IntakeController {
         stopped = false;
         currentPiece = ItemType.Cube;
         SmartDashboard.putString(CURRENT_PIECE, currentPiece.name());
-        System.out.println("Grab:" + currentPiece);
+        RobotLogger.debug("Grab:{}", currentPiece);
         intakeSubsytem.grab(currentPiece, speed);
     }
 
     public void releaseCube(double speed) {
         stopped = false;
-        System.out.println("Release Cube"); 
+        RobotLogger.debug("Release Cube"); 
         intakeSubsytem.release(ItemType.Cube, speed);
         currentPiece = null;
         SmartDashboard.putString(CURRENT_PIECE, "None");
@@ -48,10 +49,10 @@ public class IntakeControllerImpl implements IntakeController {
 
     public void stop() {
         if (currentPiece!=null) {
-            System.out.println("Holding "+currentPiece);
+            RobotLogger.debug("Holding {}", currentPiece);
             intakeSubsytem.hold(currentPiece);
         } else if (!stopped) {
-            System.out.println("Stopping intake.....");
+            RobotLogger.info("Stopping intake.....");
             intakeSubsytem.stop();
             stopped = true;
         }
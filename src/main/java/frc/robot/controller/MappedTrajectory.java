@@ -0,0 +1,136 @@
+package frc.robot.controller;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+
+/**
+ * Trajectory kept as primitive columns of time, velocity, acceleration, x, y, heading and
+ * curvature, read straight from a memory mapped cache file. Samples are interpolated from the
+ * columns, so nothing is deserialized. The sampled state is reused, but each sample allocates a
+ * new goal Pose2d and Rotation2d, which are immutable. That is accepted: RamseteController and
+ * the drive kinematics it feeds allocate several such objects per tick as well, and avoiding
+ * them all would mean replacing the WPILib follower.
+ *
+ * <p>File layout, big endian: magic, version, state count, pad, then each column in turn as
+ * doubles.
+ */
+class MappedTrajectory {
+    private static final int MAGIC = 0x50415448; // "PATH"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+    private static final int TIME = 0, VELOCITY = 1, ACCELERATION = 2, X = 3, Y = 4, HEADING = 5, CURVATURE = 6;
+    private static final int COLUMNS = 7;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    // Reused by sample
+    private final Trajectory.State state = new Trajectory.State();
+
+    private MappedTrajectory(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IOException("Not a path cache file");
+        this.buffer = buffer;
+        this.count = buffer.getInt(8);
+        if (count < 1 || buffer.capacity() < HEADER + COLUMNS * count * 8)
+            throw new IOException("Path cache is truncated");
+    }
+
+    static MappedTrajectory map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new MappedTrajectory(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Same columns held on the heap, for when the cache can't be written
+    static MappedTrajectory wrap(Trajectory trajectory) throws IOException {
+        List<Trajectory.State> states = trajectory.getStates();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + COLUMNS * states.size() * 8);
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, states.size());
+        for (int i = 0; i < states.size(); i++) {
+            double[] row = row(states.get(i));
+            for (int c = 0; c < COLUMNS; c++)
+                buffer.putDouble(offset(c, i, states.size()), row[c]);
+        }
+        return new MappedTrajectory(buffer);
+    }
+
+    static void write(Trajectory trajectory, File file) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        List<Trajectory.State> states = trajectory.getStates();
+        double[][] rows = new double[states.size()][];
+        for (int i = 0; i < rows.length; i++)
+            rows[i] = row(states.get(i));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows.length);
+            out.writeInt(0);
+            for (int c = 0; c < COLUMNS; c++)
+                for (double[] row : rows)
+                    out.writeDouble(row[c]);
+        }
+    }
+
+    private static double[] row(Trajectory.State s) {
+        return new double[] {s.timeSeconds, s.velocityMetersPerSecond, s.accelerationMetersPerSecondSq,
+            s.poseMeters.getX(), s.poseMeters.getY(), s.poseMeters.getRotation().getRadians(), s.curvatureRadPerMeter};
+    }
+
+    private static int offset(int column, int i, int count) {
+        return HEADER + (column * count + i) * 8;
+    }
+
+    private double get(int column, int i) {
+        return buffer.getDouble(offset(column, i, count));
+    }
+
+    double getTotalTimeSeconds() {
+        return get(TIME, count-1);
+    }
+
+    /**
+     * Samples the trajectory at time t, moved so that its first pose is at start. The returned
+     * state is reused by the next call.
+     */
+    Trajectory.State sample(double t, Pose2d start) {
+        // First state at or after t
+        int lo = 0, hi = count-1;
+        while (lo < hi) {
+            int mid = (lo+hi) >>> 1;
+            if (get(TIME, mid) < t) lo = mid+1;
+            else hi = mid;
+        }
+        int prev = Math.max(lo-1, 0);
+        double t0 = get(TIME, prev), t1 = get(TIME, lo);
+        double f = t1 > t0 ? Math.min(Math.max((t-t0)/(t1-t0), 0), 1) : 1;
+        double x = lerp(X, prev, lo, f), y = lerp(Y, prev, lo, f);
+        double heading = get(HEADING, prev) + f*Math.IEEEremainder(get(HEADING, lo)-get(HEADING, prev), 2*Math.PI);
+        // Relative to the first pose, then onto start
+        double dx = x-get(X, 0), dy = y-get(Y, 0);
+        double turn = start.getRotation().getRadians()-get(HEADING, 0);
+        double cos = Math.cos(turn), sin = Math.sin(turn);
+        state.timeSeconds = t;
+        state.velocityMetersPerSecond = get(VELOCITY, prev) + get(ACCELERATION, prev)*f*(t1-t0);
+        state.accelerationMetersPerSecondSq = get(ACCELERATION, prev);
+        state.curvatureRadPerMeter = lerp(CURVATURE, prev, lo, f);
+        state.poseMeters = new Pose2d(start.getX() + dx*cos - dy*sin, start.getY() + dx*sin + dy*cos,
+            new Rotation2d(heading+turn));
+        return state;
+    }
+
+    private double lerp(int column, int a, int b, double f) {
+        double v = get(column, a);
+        return v + (get(column, b)-v)*f;
+    }
+}
@@ -0,0 +1,107 @@
+package frc.robot.controller;
+
+import frc.robot.interfaces.ArmController;
+import frc.robot.main.Constants.DriveConstants;
+import frc.robot.main.Constants.TipConstants;
+import frc.robot.subsystem.AccelerometerSubsystem;
+import frc.robot.subsystem.GyroSubsystem;
+import frc.robot.subsystem.RobotState;
+
+/**
+ * Drive acceleration limits that keep the robot from tipping over. The robot tips when the
+ * acceleration times the height of the center of mass is more than g times its distance to the
+ * wheels it tips over. The center of mass is the robot plus the arm, with the arm's mass at the
+ * middle of the arm, so it rises and moves forward as the arm is raised and extended. Chassis
+ * tilt brings the center of mass closer to the wheels and lowers every limit.
+ *
+ * <p>Gyro pitch is the lift angle, so chassis tilt comes from the roboRIO accelerometer and the
+ * gyro roll. The accelerometer also feels the drive acceleration, which only makes the limits
+ * lower while accelerating.
+ */
+class TipGovernor {
+    private static final double G = 9.81;
+    private static final double METERS_PER_INCH = 0.0254;
+
+    private final AccelerometerSubsystem accelerometer = AccelerometerSubsystem.getInstance();
+    private final GyroSubsystem gyro = GyroSubsystem.getInstance();
+    private final RobotState state = RobotState.getInstance();
+    private double tilt = 0; // Degrees, low pass filtered
+    private ArmController arm;
+    private long updatedMicros = -1;
+    // Meters per second squared
+    private double forwardLimit = TipConstants.kMaxAcceleration;
+    private double backwardLimit = TipConstants.kMaxAcceleration;
+    private double sidewaysLimit = TipConstants.kMaxAcceleration;
+
+    void setArm(ArmController arm) {
+        this.arm = arm;
+    }
+
+    // Recomputes the limits once per sensor snapshot
+    void update() {
+        long now = state.getCaptureMicros();
+        if (updatedMicros == now) return;
+        // The faster control loops capture too, so the filter uses the time since the last update
+        double rawTilt = Math.max(Math.abs(accelerometer.getTilt()), Math.abs(gyro.getRoll()));
+        if (updatedMicros < 0) tilt = rawTilt;
+        else tilt += (rawTilt-tilt)*(1-Math.exp(-(now-updatedMicros)/1e6/TipConstants.kTiltFilterSeconds));
+        updatedMicros = now;
+        double reach = 0, height = 0;
+        if (arm != null) {
+            reach = Math.max(0, arm.getReach())*METERS_PER_INCH;
+            height = Math.max(0, arm.getHeight())*METERS_PER_INCH;
+        }
+        double mass = TipConstants.kRobotMassKg + TipConstants.kArmMassKg;
+        double comForward = TipConstants.kArmMassKg*(TipConstants.kArmPivotForwardMeters + reach/2)/mass;
+        double comHeight = (TipConstants.kRobotMassKg*TipConstants.kRobotCgHeightMeters
+            + TipConstants.kArmMassKg*(TipConstants.kArmPivotHeightMeters + height/2))/mass;
+        double tiltMargin = Math.tan(Math.toRadians(Math.min(tilt, 45)));
+        double halfBase = TipConstants.kWheelbaseMeters/2;
+        // Speeding up forwards tips over the back wheels, slowing down over the front ones
+        forwardLimit = limit((halfBase + comForward)/comHeight - tiltMargin);
+        backwardLimit = limit((halfBase - comForward)/comHeight - tiltMargin);
+        sidewaysLimit = limit(DriveConstants.kTrackwidthMeters/2/comHeight - tiltMargin);
+    }
+
+    private static double limit(double marginOverHeight) {
+        double limit = TipConstants.kSafetyFactor*G*marginOverHeight;
+        return Math.max(TipConstants.kMinAcceleration, Math.min(limit, TipConstants.kMaxAcceleration));
+    }
+
+    // Lowest of the limits, for the dashboard
+    double getLimit() {
+        return Math.min(Math.min(forwardLimit, backwardLimit), sidewaysLimit);
+    }
+
+    /**
+     * Limits the change of the speed command over dt seconds. Commands are squared by the drive, so
+     * the limit is applied to the squared values.
+     * @param maxSpeed meters per second of a full speed command
+     */
+    double limitSpeed(double current, double speed, double dt, double maxSpeed) {
+        double from = square(current), to = square(speed);
+        // Forward acceleration is speeding up forwards or slowing down backwards
+        double max = (to > from ? forwardLimit : backwardLimit)*dt/maxSpeed;
+        if (Math.abs(to-from) <= max) return speed;
+        return root(from + (to > from ? max : -max));
+    }
+
+    /**
+     * Limits the change of the rotation command over dt seconds. A full rotation command turns the
+     * wheel edges at full speed, so the sideways limit is also the limit on their acceleration.
+     */
+    double limitRotation(double current, double rotation, double dt, double maxSpeed) {
+        double from = square(current), to = square(rotation);
+        double max = sidewaysLimit*dt/maxSpeed;
+        if (Math.abs(to-from) <= max) return rotation;
+        return root(from + (to > from ? max : -max));
+    }
+
+    private static double square(double value) {
+        return Math.copySign(value*value, value);
+    }
+
+    private static double root(double value) {
+        return Math.copySign(Math.sqrt(Math.abs(value)), value);
+    }
+}
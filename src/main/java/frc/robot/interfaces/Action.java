@@ -1,51 +1,28 @@
 package frc.robot.interfaces;
 
 public class Action {
+   // Resources an action drives. Actions run in parallel only if they share none
+   public static final int DRIVE = 1, ARM = 2, INTAKE = 4, ALL = DRIVE | ARM | INTAKE;
+
    public enum ActionType {
-    Move("in"), Turn("deg"), Cruise("sec"),  Station("sec"),
-    RCone("sec"), RCube("sec"),  GCone("sec"), GCube("sec"), 
-    PCone("level"), PCube("level"), SArm("level"),  Hold("sec"), Stop("sec");
+    Move("in", DRIVE), Turn("deg", DRIVE), Cruise("sec", DRIVE),  Station("sec", DRIVE | ARM),
+    RCone("sec", INTAKE), RCube("sec", INTAKE),  GCone("sec", INTAKE), GCube("sec", INTAKE), 
+    PCone("level", ARM), PCube("level", ARM), SArm("level", ARM),  Hold("sec", DRIVE), Stop("sec", ALL),
+    Path("", DRIVE);
     String unit;
-    ActionType(String magnitudeUnit) {
+    public final int resources;
+    ActionType(String magnitudeUnit, int resources) {
       this.unit = magnitudeUnit;
+      this.resources = resources;
     }
   };
-   public Double speed; // Max Speed with with action should be done
-   public Integer magnitude; // Duration or distance or angle associated with action
-   public ActionType type; // Type of action to perform
-
-   public Action(Double speed, Integer magnitude) {
-    this.speed = speed;
-    this.magnitude = magnitude;
-   }
-
-   public Action(String autoOpr) {
-    String[] actionDetail = autoOpr.split(" ");
-    try {
-      type = ActionType.valueOf(actionDetail[0]);
-      magnitude = actionDetail.length>1 ? Integer.parseInt(actionDetail[1]) : null;
-      speed = actionDetail.length>2 ? Double.parseDouble(actionDetail[2]) : null;
-    } catch (Exception e) {
-    System.out.println("Ignoring"+e.getMessage());
+   // Sensors that can end an action early, eg "Cruise 3 until tilt>13" or "Hold 5 until armAtTarget".
+   // current is the current drawn by the resource the action uses.
+   public enum Sensor {
+    Tilt("tilt"), Pitch("pitch"), Roll("roll"), Yaw("yaw"), Current("current"), ArmAtTarget("armAtTarget");
+    public final String key;
+    Sensor(String key) {
+      this.key = key;
     }
-  }
-
-   public Action(Double speed, Integer magnitude, ActionType type) {
-    this.speed = speed;
-    this.magnitude = magnitude;
-    this.type = type;
-   }
-
-   public boolean equals(Action obj) {
-     if (obj==null) return false;
-     if (obj.type!=type) return false;
-     if (obj.speed!=speed) return false;
-     if (obj.magnitude!=magnitude) return false;
-    return true;
-   }
-
-   @Override
-   public String toString() {
-       return type+":"+magnitude+ type.unit+"@"+speed;
-   }
+  };
 }
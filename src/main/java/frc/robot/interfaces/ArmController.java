@@ -13,13 +13,15 @@ public interface ArmController {
     public final String LIFT_LOW_LIMIT = "Lift Low Limit";
     public final String LIFT_RANGE = "Lift Range";
     public final String ELEV_POSITION = "Elev Cur Pos";
-    public final String ELEV_CONE_KEY = "Elev Cone Pos";
-    public final String ELEV_CUBE_KEY = "Elev Cube Pos";
-    public final String ELEV_STAB_KEY = "Elev Stable Pos";
+    public final String ELEV_CONE_KEY = "Elev Cone Inches";
+    public final String ELEV_CUBE_KEY = "Elev Cube Inches";
+    public final String ELEV_STAB_KEY = "Elev Stable Inches";
     public final String ELEV_LOW_LIMIT = "Elev Low Limit";
     public final String ELEV_RANGE = "Elev Range";
     public final String ELEV_CONV_FACTOR = "Elev Conv Factor";
     public final String SPEED_LIMIT_POINT = "Speed Lim Point";
+    public final String ARM_REACH = "Arm Reach";
+    public final String ARM_HEIGHT = "Arm Height";
 
     public void init();
     public void raiseArm(double speed);
@@ -27,6 +29,8 @@ public interface ArmController {
     public void extendArm(double speed);
     public void retractArm(double speed);
     public boolean moveArmToTarget(String itemType);
+    // True when lift and elevator reached the target last moved to
+    public boolean isAtTarget();
     public String getCurrentTarget();
     public void setCurrentTarget(String targetItemType);
     public void periodic(long tickCount);
@@ -35,4 +39,7 @@ public interface ArmController {
     public void stopElevator();
     public void stopLift();
     public void resetEncoderPos();
+    // Inches the end of the arm is in front of and above the lift pivot
+    public double getReach();
+    public double getHeight();
 }
\ No newline at end of file
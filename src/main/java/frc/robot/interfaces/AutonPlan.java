@@ -0,0 +1,235 @@
+package frc.robot.interfaces;
+
+import frc.robot.interfaces.Action.ActionType;
+import frc.robot.interfaces.Action.Sensor;
+import frc.robot.util.RobotLogger;
+
+/**
+ * Compiled list of auton actions held in parallel primitive arrays, so running a plan does not
+ * allocate or unbox. Actions are referred to by index. Each action has its type, magnitude and
+ * max speed from the plan, the speed commanded for the current tick, an explicit done flag and
+ * the encoder positions and time at which it started.
+ *
+ * <p>An action can also end early when its "until" sensor goes above or below a value.
+ *
+ * <p>Consecutive actions can form a group that runs in parallel. A group is done when all its
+ * actions have finished, or for a deadline group when its first action has finished. Actions not
+ * in a group are a group of one.
+ */
+public class AutonPlan {
+    public static final int NONE = -1;
+
+    private final ActionType[] types;
+    private final int[] magnitudes;
+    private final double[] maxSpeeds;
+    private final double[] speeds;
+    private final boolean[] done;
+    private final boolean[] started;
+    private final double[] startLeft, startRight;
+    private final long[] startMillis;
+    private final int[] groupFirst, groupLast;
+    private final boolean[] deadline;
+    private final boolean[] finished;
+    private final Sensor[] untilSensors;
+    private final boolean[] untilAbove;
+    private final double[] untilValues;
+    private final String[] names;
+    private int size = 0;
+    private double defaultSpeed = 0;
+
+    public AutonPlan(int capacity) {
+        types = new ActionType[capacity];
+        magnitudes = new int[capacity];
+        maxSpeeds = new double[capacity];
+        speeds = new double[capacity];
+        done = new boolean[capacity];
+        started = new boolean[capacity];
+        startLeft = new double[capacity];
+        startRight = new double[capacity];
+        startMillis = new long[capacity];
+        groupFirst = new int[capacity];
+        groupLast = new int[capacity];
+        deadline = new boolean[capacity];
+        finished = new boolean[capacity];
+        untilSensors = new Sensor[capacity];
+        untilAbove = new boolean[capacity];
+        untilValues = new double[capacity];
+        names = new String[capacity];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** Resets every action to run again. Actions added with a NaN max speed use defaultSpeed. */
+    public void restart(double defaultSpeed) {
+        this.defaultSpeed = defaultSpeed;
+        for (int i = 0; i < size; i++) reset(i);
+    }
+
+    /** @return index of the new action, or NONE if the plan is full */
+    public int add(ActionType type, int magnitude, double maxSpeed) {
+        if (size==types.length) {
+            RobotLogger.info("Auton plan full. Dropping {}", type);
+            return NONE;
+        }
+        int i = size++;
+        types[i] = type;
+        magnitudes[i] = magnitude;
+        maxSpeeds[i] = maxSpeed;
+        groupFirst[i] = groupLast[i] = i;
+        deadline[i] = false;
+        untilSensors[i] = null;
+        names[i] = null;
+        reset(i);
+        return i;
+    }
+
+    // Name of what the action works on, eg the path of a Path action
+    public void setName(int i, String name) {
+        names[i] = name;
+    }
+
+    public String getName(int i) {
+        return names[i];
+    }
+
+    /** Ends action i once sensor goes above (or below) value. */
+    public void until(int i, Sensor sensor, boolean above, double value) {
+        untilSensors[i] = sensor;
+        untilAbove[i] = above;
+        untilValues[i] = value;
+    }
+
+    // null when the action has no until condition
+    public Sensor getUntilSensor(int i) {
+        return untilSensors[i];
+    }
+
+    public boolean isUntilAbove(int i) {
+        return untilAbove[i];
+    }
+
+    public double getUntilValue(int i) {
+        return untilValues[i];
+    }
+
+    /** Makes actions first..last a parallel group. For a deadline group the first action decides when it ends. */
+    public void group(int first, int last, boolean isDeadline) {
+        for (int i = first; i <= last; i++) {
+            groupFirst[i] = first;
+            groupLast[i] = last;
+            deadline[i] = isDeadline;
+        }
+    }
+
+    public int getGroupFirst(int i) {
+        return groupFirst[i];
+    }
+
+    public int getGroupLast(int i) {
+        return groupLast[i];
+    }
+
+    public boolean isDeadline(int i) {
+        return deadline[i];
+    }
+
+    // Clears the per action state so that the action can run again
+    public void reset(int i) {
+        speeds[i] = getMaxSpeed(i);
+        done[i] = false;
+        started[i] = false;
+        finished[i] = false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return types.length;
+    }
+
+    public ActionType getType(int i) {
+        return types[i];
+    }
+
+    public int getMagnitude(int i) {
+        return magnitudes[i];
+    }
+
+    public double getMaxSpeed(int i) {
+        return Double.isNaN(maxSpeeds[i]) ? defaultSpeed : maxSpeeds[i];
+    }
+
+    // Max speed as compiled, NaN when the plan leaves it to the controller
+    public double getPlannedSpeed(int i) {
+        return maxSpeeds[i];
+    }
+
+    // Speed to command this tick
+    public double getSpeed(int i) {
+        return speeds[i];
+    }
+
+    public void setSpeed(int i, double speed) {
+        speeds[i] = speed;
+    }
+
+    public boolean isDone(int i) {
+        return done[i];
+    }
+
+    public void markDone(int i) {
+        done[i] = true;
+        speeds[i] = 0;
+    }
+
+    // Set once the action has been carried out, after it is done
+    public void markFinished(int i) {
+        finished[i] = true;
+    }
+
+    public boolean isFinished(int i) {
+        return finished[i];
+    }
+
+    public boolean isGroupFinished(int i) {
+        int first = groupFirst[i];
+        if (deadline[first]) return finished[first];
+        for (int m = first; m <= groupLast[i]; m++)
+            if (!finished[m]) return false;
+        return true;
+    }
+
+    public boolean isStarted(int i) {
+        return started[i];
+    }
+
+    public void start(int i, double leftPos, double rightPos, long timeMillis) {
+        started[i] = true;
+        startLeft[i] = leftPos;
+        startRight[i] = rightPos;
+        startMillis[i] = timeMillis;
+    }
+
+    public double getStartLeft(int i) {
+        return startLeft[i];
+    }
+
+    public double getStartRight(int i) {
+        return startRight[i];
+    }
+
+    public long getStartMillis(int i) {
+        return startMillis[i];
+    }
+
+    public String toString(int i) {
+        String action = names[i]!=null ? types[i]+":"+names[i] : types[i]+":"+magnitudes[i]+types[i].unit+"@"+getMaxSpeed(i);
+        if (untilSensors[i] == null) return action;
+        if (untilSensors[i] == Sensor.ArmAtTarget) return action+" until "+untilSensors[i].key;
+        return action+" until "+untilSensors[i].key+(untilAbove[i]?">":"<")+untilValues[i];
+    }
+}
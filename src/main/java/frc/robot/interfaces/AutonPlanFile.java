@@ -0,0 +1,176 @@
+package frc.robot.interfaces;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import frc.robot.interfaces.Action.ActionType;
+import frc.robot.interfaces.Action.Sensor;
+
+/**
+ * Binary file of compiled auton plans. The compileAuton gradle task runs main() to validate every
+ * script in the deploy auton folder and write the file, so a bad script fails the build. The robot
+ * memory maps the file at startup and decodes all plans before the match.
+ *
+ * <p>Layout, big endian: magic, version, ActionType signature, plan count, then for each plan its
+ * name (short length + UTF-8), action count and per action the type ordinal (byte), magnitude (int)
+ * and speed (double, NaN when left to the controller), until sensor ordinal (byte, -1 for none),
+ * above (byte) and value (double), and name (short length + UTF-8, -1 for none), then the group
+ * count and per parallel group its first and last action (short) and whether it is a deadline
+ * group (byte).
+ */
+public class AutonPlanFile {
+    public static final String SCRIPT_SUFFIX = ".auton";
+    public static final String PLAN_FILE = "plans.bin";
+    public static final String PATH_SUFFIX = ".wpilib.json";
+    public static final int MAX_ACTIONS = 64;
+    private static final int MAGIC = 0x4155544E; // "AUTN"
+    private static final int VERSION = 4;
+
+    private AutonPlanFile() {
+    }
+
+    // Types and sensors are stored by ordinal, so a file built against different enums is rejected
+    private static int typeSignature() {
+        return (Arrays.toString(ActionType.values()) + Arrays.toString(Sensor.values())).hashCode();
+    }
+
+    /** Checks that every Path action names a trajectory in pathDir. */
+    public static void checkPaths(AutonPlan plan, File pathDir) {
+        for (int i = 0; i < plan.size(); i++) {
+            if (plan.getType(i) == ActionType.Path && !new File(pathDir, plan.getName(i) + PATH_SUFFIX).isFile())
+                throw new IllegalArgumentException("No path " + plan.getName(i) + PATH_SUFFIX + " in " + pathDir);
+        }
+    }
+
+    /**
+     * Compiles every script in dir, keyed by file name without the suffix, in name order.
+     * Paths are looked for in the paths folder next to dir.
+     */
+    public static Map<String, AutonPlan> compileScripts(File dir) throws IOException {
+        File[] scripts = dir.listFiles((d, name) -> name.endsWith(SCRIPT_SUFFIX));
+        if (scripts == null) throw new IOException("No auton script folder " + dir);
+        Arrays.sort(scripts);
+        Map<String, AutonPlan> plans = new LinkedHashMap<>();
+        for (File script : scripts) {
+            String name = script.getName();
+            AutonPlan plan = new AutonPlan(MAX_ACTIONS);
+            try {
+                AutonScript.compile(new String(Files.readAllBytes(script.toPath()), StandardCharsets.UTF_8), plan);
+                checkPaths(plan, new File(dir.getAbsoluteFile().getParentFile(), "paths"));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(name + " " + e.getMessage());
+            }
+            plans.put(name.substring(0, name.length() - SCRIPT_SUFFIX.length()), plan);
+        }
+        return plans;
+    }
+
+    public static void write(Map<String, AutonPlan> plans, File file) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(typeSignature());
+            out.writeInt(plans.size());
+            for (Map.Entry<String, AutonPlan> entry : plans.entrySet()) {
+                writeName(out, entry.getKey());
+                AutonPlan plan = entry.getValue();
+                out.writeInt(plan.size());
+                for (int i = 0; i < plan.size(); i++) {
+                    out.writeByte(plan.getType(i).ordinal());
+                    out.writeInt(plan.getMagnitude(i));
+                    out.writeDouble(plan.getPlannedSpeed(i));
+                    Sensor sensor = plan.getUntilSensor(i);
+                    out.writeByte(sensor == null ? -1 : sensor.ordinal());
+                    out.writeByte(plan.isUntilAbove(i) ? 1 : 0);
+                    out.writeDouble(plan.getUntilValue(i));
+                    writeName(out, plan.getName(i));
+                }
+                int groups = 0;
+                for (int i = 0; i < plan.size(); i++)
+                    if (plan.getGroupFirst(i) == i && plan.getGroupLast(i) > i) groups++;
+                out.writeInt(groups);
+                for (int i = 0; i < plan.size(); i = plan.getGroupLast(i) + 1) {
+                    if (plan.getGroupLast(i) == i) continue;
+                    out.writeShort(i);
+                    out.writeShort(plan.getGroupLast(i));
+                    out.writeByte(plan.isDeadline(i) ? 1 : 0);
+                }
+            }
+        }
+    }
+
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        if (name == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readName(MappedByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static Map<String, AutonPlan> read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != typeSignature())
+                throw new IOException(file + " was built by a different version of the robot code");
+            ActionType[] types = ActionType.values();
+            Sensor[] sensors = Sensor.values();
+            int count = buffer.getInt();
+            Map<String, AutonPlan> plans = new LinkedHashMap<>();
+            for (int p = 0; p < count; p++) {
+                String name = readName(buffer);
+                int size = buffer.getInt();
+                AutonPlan plan = new AutonPlan(MAX_ACTIONS);
+                for (int i = 0; i < size; i++) {
+                    plan.add(types[buffer.get()], buffer.getInt(), buffer.getDouble());
+                    byte sensor = buffer.get();
+                    boolean above = buffer.get() != 0;
+                    double value = buffer.getDouble();
+                    if (sensor >= 0) plan.until(i, sensors[sensor], above, value);
+                    plan.setName(i, readName(buffer));
+                }
+                int groups = buffer.getInt();
+                for (int g = 0; g < groups; g++)
+                    plan.group(buffer.getShort(), buffer.getShort(), buffer.get() != 0);
+                plans.put(name, plan);
+            }
+            return plans;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException(file + " is truncated or corrupt");
+        }
+    }
+
+    /** Build time entry point. Arguments are the script folder and the plan file to write. */
+    public static void main(String[] args) {
+        try {
+            Map<String, AutonPlan> plans = compileScripts(new File(args[0]));
+            write(plans, new File(args[1]));
+            System.out.println("Compiled " + plans.size() + " auton plans " + plans.keySet() + " into " + args[1]);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Auton script error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package frc.robot.interfaces;
+
+import frc.robot.interfaces.Action.ActionType;
+import frc.robot.interfaces.Action.Sensor;
+
+/**
+ * Parses auton scripts into an AutonPlan. Ops are separated by commas or new lines and each op is
+ * "Type [magnitude [speed]]", eg "Move 20 .5". Text after "#" is a comment. Speed is optional and
+ * left to the controller when missing, and arm ops need no level. An op can end early with
+ * "until tilt&gt;13", "until current&lt;5" or "until armAtTarget". It still ends as it would without
+ * the condition: timed ops after their seconds, Move and Turn at their distance or angle, and arm
+ * ops only on reaching the target. Sensors are tilt, pitch, roll, yaw and current. "Path name" follows the deployed
+ * trajectory paths/name.wpilib.json. Any error throws
+ * IllegalArgumentException naming the line and op, so a bad script can be rejected instead of
+ * silently skipped.
+ *
+ * <p>"[Move 48 | PCone]" runs its actions in parallel until all are done. "{Move 48 | GCone 5}" is a
+ * deadline group that ends, stopping the others, when its first action is done. Actions in a group
+ * must not share the drive, arm or intake, and groups can't be nested or hold Stop.
+ */
+public class AutonScript {
+    private AutonScript() {
+    }
+
+    // Replaces the contents of plan with the compiled script
+    public static void compile(String script, AutonPlan plan) {
+        plan.clear();
+        String[] lines = script.split("\n");
+        for (int n = 0; n < lines.length; n++) {
+            String line = lines[n];
+            int comment = line.indexOf('#');
+            if (comment >= 0) line = line.substring(0, comment);
+            for (String op : line.split(",")) {
+                op = op.trim();
+                if (op.isEmpty()) continue;
+                try {
+                    if (op.startsWith("[") || op.startsWith("{")) addGroup(op, plan);
+                    else addOp(op, plan);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("line " + (n + 1) + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void addGroup(String group, AutonPlan plan) {
+        boolean deadline = group.startsWith("{");
+        if (!group.endsWith(deadline ? "}" : "]"))
+            throw new IllegalArgumentException("Unclosed group '" + group + "'");
+        String[] ops = group.substring(1, group.length() - 1).split("\\|");
+        if (ops.length < 2)
+            throw new IllegalArgumentException("Group needs at least 2 actions '" + group + "'");
+        int first = plan.size();
+        int used = 0;
+        for (String op : ops) {
+            op = op.trim();
+            if (op.startsWith("[") || op.startsWith("{"))
+                throw new IllegalArgumentException("Nested group in '" + group + "'");
+            addOp(op, plan);
+            ActionType type = plan.getType(plan.size() - 1);
+            if (type == ActionType.Stop)
+                throw new IllegalArgumentException("Stop can't be in group '" + group + "'");
+            if ((used & type.resources) != 0)
+                throw new IllegalArgumentException(resourceName(used & type.resources) + " used twice in '" + group + "'");
+            used |= type.resources;
+        }
+        plan.group(first, plan.size() - 1, deadline);
+    }
+
+    private static String resourceName(int resources) {
+        if ((resources & Action.DRIVE) != 0) return "Drive";
+        if ((resources & Action.ARM) != 0) return "Arm";
+        return "Intake";
+    }
+
+    private static void addOp(String op, AutonPlan plan) {
+        String condition = null;
+        String action = op;
+        int until = op.indexOf(" until ");
+        if (until >= 0) {
+            condition = op.substring(until + 7).replace(" ", "");
+            action = op.substring(0, until).trim();
+        }
+        String[] fields = action.split("\\s+");
+        if (plan.size() == plan.capacity())
+            throw new IllegalArgumentException("More than " + plan.capacity() + " actions");
+        ActionType type;
+        try {
+            type = ActionType.valueOf(fields[0]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown action '" + fields[0] + "' in '" + op + "'");
+        }
+        if (type == ActionType.Path) {
+            if (fields.length != 2)
+                throw new IllegalArgumentException("Path needs just a path name in '" + op + "'");
+            int i = plan.add(type, 0, Double.NaN);
+            plan.setName(i, fields[1]);
+            if (condition != null) addCondition(condition, op, plan, i);
+            return;
+        }
+        if (fields.length > 3)
+            throw new IllegalArgumentException("Too many fields in '" + op + "'");
+        if (fields.length < 2 && type != ActionType.Stop && !"level".equals(type.unit))
+            throw new IllegalArgumentException("Missing " + type.unit + " in '" + op + "'");
+        int magnitude = 0;
+        double speed = Double.NaN;
+        try {
+            if (fields.length > 1) magnitude = Integer.parseInt(fields[1]);
+            if (fields.length > 2) speed = Double.parseDouble(fields[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad number in '" + op + "'");
+        }
+        if (fields.length > 2 && !(Math.abs(speed) <= 1.0))
+            throw new IllegalArgumentException("Speed must be between -1 and 1 in '" + op + "'");
+        int i = plan.add(type, magnitude, speed);
+        if (condition != null) addCondition(condition, op, plan, i);
+    }
+
+    private static void addCondition(String condition, String op, AutonPlan plan, int i) {
+        if (condition.equals(Sensor.ArmAtTarget.key)) {
+            plan.until(i, Sensor.ArmAtTarget, true, 0);
+            return;
+        }
+        int at = Math.max(condition.indexOf('>'), condition.indexOf('<'));
+        if (at <= 0)
+            throw new IllegalArgumentException("Until needs sensor>value or sensor<value in '" + op + "'");
+        String key = condition.substring(0, at);
+        Sensor sensor = null;
+        for (Sensor s : Sensor.values())
+            if (s.key.equals(key) && s != Sensor.ArmAtTarget) sensor = s;
+        if (sensor == null)
+            throw new IllegalArgumentException("Unknown sensor '" + key + "' in '" + op + "'");
+        try {
+            plan.until(i, sensor, condition.charAt(at) == '>', Double.parseDouble(condition.substring(at + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad number in until '" + condition + "'");
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package frc.robot.interfaces;
 
 public interface AutonomousController {
-    public Action getNextAction(long timeInAutonomous);
-    public void actionComplete(Action action);
-    public Action calibrate(int calibrationCount, long timeInTest);
-    public void autonomousInit(String[] autoOp);
+    // Returns index into getPlan() of the action to perform, or AutonPlan.NONE when all actions are done
+    public int getNextAction(long timeInAutonomous);
+    public void actionComplete(int action);
+    public AutonPlan getPlan();
+    public int calibrate(int calibrationCount, long timeInTest);
+    // Plan is compiled ahead of time and only swapped in here
+    public void autonomousInit(AutonPlan plan);
     public void calibrationInit(int calibrationCycle);
     public void simulationPeriodic(long tickCount);
+    // Dry run while disabled. Fills actionEnd with predicted end time in sec of each action and returns the total, NaN if not supported
+    public double predictDuration(AutonPlan plan, double[] actionEnd);
+    public void disabledInit();
 }
@@ -1,10 +1,15 @@
 package frc.robot.interfaces;
 
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+
 public interface DriveController {
     public final String RESET_ENCODER="Reset Encoder";
     public final String ROTATIONAL_ACC_LIMIT="Rot Acc Limt";
     public final String ENCODER_RT_POS="Drive Rt Pos";
     public final String ENCODER_LT_POS="Drive Lt Pos";
+    public final String ACC_LIMIT="Drive Acc Limit";
+    public final String CLOSED_LOOP_DRIVE="Closed Loop Drive";
 
     public void init();
     public void disabledInit();
@@ -16,4 +21,12 @@ public interface DriveController {
     public void simulationPeriodic(long tickCount);
     public void periodic(long tickCount);
     public double getYaw();
+    // Odometry pose in meters, from where odometry was last reset
+    public Pose2d getPose();
+    // Pose at an earlier FPGA time in microseconds, or null if older than the pose history
+    public Pose2d getPoseAt(long timeMicros);
+    // Drives towards the trajectory state with a RAMSETE controller
+    public void follow(Trajectory.State goal);
+    // The arm's reach and height lower the acceleration limits that keep the robot from tipping
+    public void setArm(ArmController arm);
 }
@@ -62,6 +62,58 @@ public final class Constants {
 
     // Example value only - as above, this must be tuned for your drive!
     public static final double kPDriveVel = 8.5;
+
+    // SparkMax encoder units (motor rotations) to wheel travel. Matches the auton "Inches Per Unit" default
+    public static final double kMetersPerEncoderUnit = 2.355 * 0.0254;
+    public static final double kNominalVolts = 12.0;
+    // Full speed command in closed loop drive, leaving voltage headroom for the velocity loop
+    public static final double kMaxCommandSpeedMetersPerSecond = 4.5;
+  }
+
+  // Mass and geometry for the anti-tip acceleration limits. Estimates, to be measured on the robot.
+  // The arm pivot is measured from the middle of the robot, forward and up from the floor.
+  public static final class TipConstants {
+    public static final double kWheelbaseMeters = 0.75;
+    public static final double kRobotMassKg = 50; // without the arm
+    public static final double kArmMassKg = 9;
+    public static final double kRobotCgHeightMeters = 0.2;
+    public static final double kArmPivotForwardMeters = 0.1;
+    public static final double kArmPivotHeightMeters = 0.3;
+    public static final double kSafetyFactor = 0.6;
+    public static final double kMaxAcceleration = 8; // meters per second squared, the wheels slip first
+    public static final double kMinAcceleration = 0.5; // so the robot can always stop
+    public static final double kTiltFilterSeconds = 0.2;
+  }
+
+  // Lift position control on the pulley SparkMax, in pulley encoder rotations.
+  // Untuned starting values, to be characterized on the robot.
+  public static final class LiftConstants {
+    public static final double kP = 0.1;
+    public static final double kI = 0;
+    public static final double kD = 0;
+    public static final double kMinOutput = -0.5;
+    public static final double kMaxOutput = 0.75;
+    public static final double kMaxVelocity = 20; // rotations per second
+    public static final double kMaxAcceleration = 40; // rotations per second squared
+    public static final double ksVolts = 0.1;
+    public static final double kgVolts = 0.4; // to hold the arm level
+    public static final double kvVoltSecondsPerRotation = 0.3;
+    public static final double kTolerance = 0.5; // rotations
+  }
+
+  // Elevator Smart Motion on the left elevator SparkMax, in elevator encoder rotations.
+  // Untuned starting values, to be characterized on the robot.
+  public static final class ElevatorConstants {
+    public static final double kP = 5e-5;
+    public static final double kI = 0;
+    public static final double kD = 0;
+    public static final double kFF = 1.0/5676; // NEO free speed
+    public static final double kMinOutput = -1;
+    public static final double kMaxOutput = 1;
+    public static final double kMaxVelocityRpm = 2000;
+    public static final double kMaxAccelRpmPerSecond = 1500;
+    public static final double kAllowedError = 0.5; // rotations
+    public static final double kTolerance = 1; // rotations
   }
 
   public static final class IOConstants {
@@ -0,0 +1,99 @@
+package frc.robot.main;
+
+import java.util.ArrayList;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import frc.robot.subsystem.HardwareThread;
+import frc.robot.subsystem.RobotState;
+import frc.robot.util.RobotClock;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Rate;
+
+/**
+ * Control loops that run faster than the 20ms main loop, scheduled with TimedRobot.addPeriodic
+ * so they run on the main thread between main loop ticks. Each run captures a fresh RobotState
+ * and flushes outputs afterwards. Every loop, including the main loop, has a time budget and
+ * publishes how often it went over budget and its max run time.
+ *
+ * <p>Decision logic stays in the main loop. A fast loop should only act on what the main loop
+ * asked for in the current tick (see getMainTick), so that it stops as soon as the main loop
+ * stops asking.
+ */
+public class ControlLoops {
+  private static class Loop {
+    final String name;
+    final double periodSeconds;
+    final long budgetMicros;
+    final Runnable body;
+    long overruns = 0;
+    long maxMicros = 0;
+
+    Loop(String name, double periodSeconds, double budgetSeconds, Runnable body) {
+      this.name = name;
+      this.periodSeconds = periodSeconds;
+      this.budgetMicros = (long) (budgetSeconds * 1e6);
+      this.body = body;
+      Telemetry.getInstance().addNumber(name + " Overruns", Rate.Hz1, 0, () -> overruns);
+      Telemetry.getInstance().addNumber(name + " Max", Rate.Hz1, 1, () -> maxMicros);
+    }
+
+    void record(long elapsedMicros) {
+      if (elapsedMicros > budgetMicros) overruns++;
+      if (elapsedMicros > maxMicros) maxMicros = elapsedMicros;
+    }
+  }
+
+  static private ControlLoops self;
+  private final ArrayList<Loop> loops = new ArrayList<Loop>(4);
+  private final Loop mainLoop = new Loop("Main Loop", 0.02, 0.02, null);
+  private final RobotState robotState = RobotState.getInstance();
+  private final HardwareThread hardware = HardwareThread.getInstance();
+  private long mainTick = 0;
+  private boolean installed = false;
+
+  private ControlLoops() {
+    self = this;
+  }
+
+  public static ControlLoops getInstance() {
+    return self==null?new ControlLoops():self;
+  }
+
+  /**
+   * Adds a loop. Must be called before the robot finishes robotInit.
+   * @param budgetSeconds run time above which the run counts as an overrun
+   */
+  public void add(String name, double periodSeconds, double budgetSeconds, Runnable body) {
+    if (installed) throw new IllegalStateException("Control loops already installed");
+    loops.add(new Loop(name, periodSeconds, budgetSeconds, body));
+  }
+
+  // Offset each loop by half its period so it does not land on the same time slot as the main loop
+  void install(TimedRobot robot) {
+    installed = true;
+    for (Loop loop : loops)
+      robot.addPeriodic(() -> run(loop), loop.periodSeconds, loop.periodSeconds / 2);
+  }
+
+  /** Incremented at the start of every main loop tick. */
+  public long getMainTick() {
+    return mainTick;
+  }
+
+  long mainLoopStarted() {
+    mainTick++;
+    return RobotClock.nowMicros();
+  }
+
+  void mainLoopDone(long startMicros) {
+    mainLoop.record(RobotClock.nowMicros() - startMicros);
+  }
+
+  private void run(Loop loop) {
+    long start = RobotClock.nowMicros();
+    robotState.capture();
+    loop.body.run();
+    hardware.flush();
+    loop.record(RobotClock.nowMicros() - start);
+  }
+}
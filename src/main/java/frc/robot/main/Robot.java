@@ -4,11 +4,15 @@
 
 package frc.robot.main;
 
-import java.util.Date;
-
 import edu.wpi.first.cameraserver.CameraServer;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.subsystem.HardwareThread;
+import frc.robot.subsystem.RobotState;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.LoopProfiler.Stage;
+import frc.robot.util.RobotLogger;
+import frc.robot.util.Stopwatch;
 
 
 /**
@@ -18,10 +22,14 @@ import edu.wpi.first.wpilibj2.command.CommandScheduler;
  */
 public class Robot extends TimedRobot {
   private RobotContainer robotContainer;
-  Date autonomousStartTime;
+  private LoopProfiler profiler = LoopProfiler.getInstance();
+  private RobotState robotState = RobotState.getInstance();
+  private HardwareThread hardware = HardwareThread.getInstance();
+  private ControlLoops controlLoops = ControlLoops.getInstance();
+  Stopwatch autonomousTimer = new Stopwatch();
   boolean autonomousComplete;
   boolean calibrateInProgress;
-  Date testStartTime = null;
+  Stopwatch testTimer = new Stopwatch();
   boolean moving = false;
   boolean rotating = false;
 
@@ -33,6 +41,25 @@ public class Robot extends TimedRobot {
   public void robotInit() {
     CameraServer.startAutomaticCapture();
     robotContainer = new RobotContainer();
+    hardware.start();
+    robotState.capture();
+    controlLoops.install(this);
+  }
+
+  /**
+   * Captures the sensor snapshot before TimedRobot runs the mode periodic and robotPeriodic,
+   * since the mode periodic functions run first. Motor outputs set during the loop are
+   * handed to the hardware thread at the end.
+   */
+  @Override
+  protected void loopFunc() {
+    long loopStart = controlLoops.mainLoopStarted();
+    long start = profiler.start();
+    robotState.capture();
+    profiler.record(Stage.SensorCapture, start);
+    super.loopFunc();
+    hardware.flush();
+    controlLoops.mainLoopDone(loopStart);
   }
 
   /**
@@ -49,8 +76,12 @@ public class Robot extends TimedRobot {
     // newly-scheduled commands, running already-scheduled commands, removing finished or
     // interrupted commands, and running subsystem periodic() methods. This must be called from the
     // robot's periodic block in order for anything in the Command-based framework to work.
+    long start = profiler.start();
     CommandScheduler.getInstance().run();
+    long lap = profiler.record(Stage.Scheduler, start);
     robotContainer.periodic();
+    profiler.record(Stage.ContainerPeriodic, lap);
+    profiler.record(Stage.RobotPeriodic, start);
   }
 
   @Override
@@ -63,8 +94,9 @@ public class Robot extends TimedRobot {
   @Override
   public void autonomousInit() {
     autonomousComplete = false;
-    autonomousStartTime = null;
-    System.out.println("AutonomousInit.");
+    autonomousTimer.reset();
+    RobotLogger.info("AutonomousInit.");
+    profiler.reset();
     robotContainer.autonomousInit();
   }
 
@@ -74,17 +106,19 @@ public class Robot extends TimedRobot {
     // Return immediately if robo has completed all operations in autonomous mode.
     if (autonomousComplete) return;
     // Otherwise calculate the time the Robo has been in autonomous mode and invoke autonomousOp() in roboContainer
-    Date currentTime = new Date();
     long difference = 0;
-    if (autonomousStartTime==null) {
-      System.out.println("Autonomous started");
-      autonomousStartTime = currentTime;
+    if (!autonomousTimer.isRunning()) {
+      RobotLogger.info("Autonomous started");
+      autonomousTimer.start();
     } else
-      difference = currentTime.getTime()-autonomousStartTime.getTime();
+      difference = autonomousTimer.elapsedMillis();
     //System.out.println("Elapsed time: "+difference);
     // If autonomousOp returns false, then all operations are done and autonomous mode is complete
-    if (!robotContainer.autonomousOp(difference)) {
-      System.out.println("Autonomous completed in "+difference+" millisec!");
+    long start = profiler.start();
+    boolean moreOps = robotContainer.autonomousOp(difference);
+    profiler.record(Stage.AutonomousOp, start);
+    if (!moreOps) {
+      RobotLogger.info("Autonomous completed in {} millisec!", difference);
       autonomousComplete = true;
     }
     //robotContainer.autonCommand(30);
@@ -94,12 +128,17 @@ public class Robot extends TimedRobot {
   public void disabledInit() {
     robotContainer.disabledInit();
   }
+
+  @Override
+  public void disabledPeriodic() {
+    robotContainer.disabledPeriodic();
+  }
   
 
   @Override
   public void autonomousExit() {
     robotContainer.autonomousExit();
-    System.out.println("Autonomous ended");
+    RobotLogger.info("Autonomous ended");
   }
 
   /**
@@ -107,23 +146,27 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void teleopInit() {
-    System.out.println("Teleop initialized");
+    RobotLogger.info("Teleop initialized");
     calibrateInProgress = false;
+    profiler.reset();
     robotContainer.teleOpInit();
   }
 
   /** This function is called periodically during teleoperated mode. */
   @Override
   public void teleopPeriodic() {
+    long start = profiler.start();
     robotContainer.teleOp();
+    profiler.record(Stage.TeleOp, start);
   }
 
   /** This function is called once each time the robot enters test mode. */
 
   @Override
   public void testInit() {
+    profiler.reset();
     robotContainer.calibrationInit();
-    testStartTime = null;
+    testTimer.reset();
     calibrateInProgress = true;
   }
 
@@ -131,15 +174,17 @@ public class Robot extends TimedRobot {
   @Override
   public void testPeriodic() {
     if (!calibrateInProgress) return;
-    Date currentTime = new Date();
     long difference = 0;
-    if (testStartTime==null) {
-      testStartTime = currentTime;
+    if (!testTimer.isRunning()) {
+      testTimer.start();
     } else
-      difference = currentTime.getTime()-testStartTime.getTime();
+      difference = testTimer.elapsedMillis();
     //System.out.println("Elapsed time in test: "+difference);
-    if (!robotContainer.calibrate(difference)) {
-      testStartTime = null;
+    long start = profiler.start();
+    boolean calibrating = robotContainer.calibrate(difference);
+    profiler.record(Stage.Calibrate, start);
+    if (!calibrating) {
+      testTimer.reset();
       calibrateInProgress = false;
     }
   }
@@ -1,8 +1,18 @@
 package frc.robot.main;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.controller.ArmControllerImpl;
+import frc.robot.controller.AutonPredictor;
 import frc.robot.controller.AutonWithEncoder;
 import frc.robot.controller.ClimbController;
 import frc.robot.controller.DriveControllerImpl;
@@ -11,6 +21,9 @@ import frc.robot.controller.PSTeleController;
 import frc.robot.controller.XboxTeleController;
 import frc.robot.controller.ClimbController.States;
 import frc.robot.interfaces.Action;
+import frc.robot.interfaces.AutonPlan;
+import frc.robot.interfaces.AutonPlanFile;
+import frc.robot.interfaces.AutonScript;
 import frc.robot.interfaces.ArmController;
 import frc.robot.interfaces.IntakeController;
 import frc.robot.interfaces.AutonomousController;
@@ -18,7 +31,15 @@ import frc.robot.interfaces.DriveController;
 import frc.robot.interfaces.TeleController;
 import frc.robot.main.Constants.IOConstants;
 import frc.robot.subsystem.AccelerometerSubsystem;
+import frc.robot.subsystem.CanBudget;
 import frc.robot.subsystem.GyroSubsystem;
+import frc.robot.subsystem.RobotState;
+import frc.robot.subsystem.RobotState.Signal;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.LoopProfiler.Stage;
+import frc.robot.util.RobotLogger;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Rate;
 
 /**
  * This class is where the bulk of the robot should be declared. Since
@@ -36,21 +57,29 @@ public class RobotContainer {
   private DriveController driveController = new DriveControllerImpl();
   private ArmController armController = new ArmControllerImpl();
   private IntakeController intakeController = new IntakeControllerImpl();
-  private AutonomousController autonomousController = new AutonWithEncoder(driveController);
+  private AutonomousController autonomousController = new AutonWithEncoder(driveController, armController);
   private AccelerometerSubsystem accelerometer = AccelerometerSubsystem.getInstance();
-  Action lastAction = null;
+  private LoopProfiler profiler = LoopProfiler.getInstance();
+  private Telemetry telemetry = Telemetry.getInstance();
+  private CanBudget canBudget = CanBudget.getInstance();
+  int lastAction = AutonPlan.NONE;
   int calibrationCycle = 0;
   int cycle = 0;
   long tickCount = 0;
-  // Instructions for auton operation
-  // Move 4ft, then take 2sec to move arm in place for cone, 1 sec to release
-  // cone, 2 sec to secure arm, then move back 4ft, turn 90 deg,...
- // "Move 48, PCone 2, RCone 1, SArm 2, Move -48, Turn -90, Move -20";
-
-  final String[] ritOps = {"Move 20 .5", "Move -20", "Turn 90"};
-  final String[] lftOps = {"Move 20", "Move -20", "Turn -90"};
-  final String[] midOps = {"Move -5", "Move 10", "Cruise 2 .6", "Cruise 2 .2", "Hold 10"};
-  final String[] defOps = {"Station 20 .4"};
+  // Auton routines are scripts in deploy/auton, compiled at build time into deploy/auton/plans.bin.
+  // The "Auton Commands" dashboard string overrides the chosen routine and is compiled while disabled.
+  // eg "Move 48, PCone 2, RCone 1, SArm 2, Move -48, Turn -90, Move -20"
+  static final String AUTON_COMMANDS = "Auton Commands";
+  private Map<String, AutonPlan> autonPlans;
+  private final AutonPlan noPlan = new AutonPlan(0);
+  private final AutonPlan dashboardPlan = new AutonPlan(AutonPlanFile.MAX_ACTIONS);
+  private String dashboardScript = "";
+  private boolean dashboardPlanValid = false;
+  static final String AUTON_TIMELINE = "Auton Timeline";
+  static final String AUTON_PREDICTED = "Auton Predicted Sec";
+  private final double[] predictedEnd = new double[AutonPlanFile.MAX_ACTIONS];
+  private AutonPlan predictedPlan = null;
+  private boolean predictedTooLong = false;
 
   private String m_autoSelected;
   private final SendableChooser<String> m_chooser = new SendableChooser<>();
@@ -63,23 +92,63 @@ public class RobotContainer {
       driveteleController = new PSTeleController(IOConstants.psDriverControllerPort);
     else
       driveteleController = new XboxTeleController(IOConstants.xbDriverControllerPort);
-    System.out.println("Using " + driveteleController.getControllerType() + " telecontroller");
+    RobotLogger.info("Using {} telecontroller", driveteleController.getControllerType());
 
     if ("PS4".equals(IOConstants.teleControllerType2))
       armTeleController = new PSTeleController(IOConstants.psDriverControllerPort2);
     else if (IOConstants.teleControllerType2 != null)
       armTeleController = new XboxTeleController(IOConstants.xbDriverControllerPort2);
     else {
-      System.out.println("Using single controller for arm and drive");
+      RobotLogger.info("Using single controller for arm and drive");
       armTeleController = driveteleController;
     }
-    m_chooser.setDefaultOption("DefaultSeq", "Default");
-    m_chooser.addOption("RightSeq", "Right");
-    m_chooser.addOption("LeftSeq", "Left");
-    m_chooser.addOption("MiddleSeq", "Middle");
+    driveController.setArm(armController);
+    loadAutonPlans();
+    for (String name : autonPlans.keySet()) {
+      if ("Default".equals(name)) m_chooser.setDefaultOption(name + "Seq", name);
+      else m_chooser.addOption(name + "Seq", name);
+    }
 
     SmartDashboard.putData("Auto choices", m_chooser);
-    SmartDashboard.putString("Auton Commands", "");
+    SmartDashboard.putString(AUTON_COMMANDS, "");
+    RobotState.getInstance().register(Signal.BatteryVoltage, RobotController::getBatteryVoltage);
+    telemetry.addNumber("Tilt", Rate.Hz10, 0.1, accelerometer::getTilt);
+    canBudget.configure();
+  }
+
+  private void loadAutonPlans() {
+    File autonDir = new File(Filesystem.getDeployDirectory(), "auton");
+    try {
+      autonPlans = AutonPlanFile.read(new File(autonDir, AutonPlanFile.PLAN_FILE));
+    } catch (IOException e) {
+      // Simulation and deploys that skipped the gradle build only have the scripts
+      RobotLogger.info("No compiled auton plans: {}", e.getMessage());
+      try {
+        autonPlans = AutonPlanFile.compileScripts(autonDir);
+      } catch (IOException | IllegalArgumentException ex) {
+        DriverStation.reportError("Auton scripts not loaded. " + ex.getMessage(), false);
+        autonPlans = new LinkedHashMap<>();
+      }
+    }
+    RobotLogger.info("Loaded auton plans:{}", autonPlans.keySet());
+  }
+
+  // Recompiles the dashboard script when it changes. Not for the match loop as it allocates
+  private void compileDashboardScript() {
+    String script = SmartDashboard.getString(AUTON_COMMANDS, "").trim();
+    if (script.equals(dashboardScript)) return;
+    dashboardScript = script;
+    dashboardPlanValid = false;
+    if (script.isEmpty()) return;
+    try {
+      AutonScript.compile(script, dashboardPlan);
+      AutonPlanFile.checkPaths(dashboardPlan, new File(Filesystem.getDeployDirectory(), "paths"));
+      dashboardPlanValid = true;
+      predictedPlan = null;
+      RobotLogger.info("Compiled {} actions from {}", dashboardPlan.size(), AUTON_COMMANDS);
+    } catch (IllegalArgumentException e) {
+      DriverStation.reportWarning(AUTON_COMMANDS + " ignored. " + e.getMessage(), false);
+    }
   }
 
   public void simulationPeriodic() {
@@ -91,28 +160,55 @@ public class RobotContainer {
 
   public void autonomousInit() {
     tickCount = 0;
+    lastAction = AutonPlan.NONE;
     driveController.init();
     armController.init();
-    String autoOpr = SmartDashboard.getString("Auton Commands", "");
-  
-    if (autoOpr != null && autoOpr.length() > 0)
-      autonomousController.autonomousInit(autoOpr.split(","));
-    else {
-      String[] autoOps;
-      m_autoSelected = m_chooser.getSelected();
-      System.out.println("Auto selected: " + m_autoSelected);    
-      switch (m_autoSelected) {
-        case "Right": autoOps = ritOps; break;
-        case "Middle": autoOps = midOps; break;
-        case "Left":autoOps = lftOps; break;
-        default: autoOps = defOps; break;
-      }
-      autonomousController.autonomousInit(autoOps);
+    compileDashboardScript(); // Normally already done while disabled
+    AutonPlan plan = selectAutonPlan();
+    if (plan == noPlan)
+      DriverStation.reportWarning("No auton plan " + m_autoSelected, false);
+    autonomousController.autonomousInit(plan);
+  }
+
+  // Dashboard commands override the chosen routine
+  private AutonPlan selectAutonPlan() {
+    if (dashboardPlanValid) return dashboardPlan;
+    String selected = m_chooser.getSelected();
+    if (!Objects.equals(selected, m_autoSelected)) {
+      m_autoSelected = selected;
+      RobotLogger.info("Auto selected: {}", m_autoSelected);
     }
+    AutonPlan plan = m_autoSelected == null ? null : autonPlans.get(m_autoSelected);
+    return plan == null ? noPlan : plan;
   }
 
   void disabledInit() {
     driveController.disabledInit();
+    autonomousController.disabledInit();
+    predictedPlan = null;
+  }
+
+  void disabledPeriodic() {
+    if (tickCount % 25 == 0) compileDashboardScript();
+    if (tickCount % 50 == 0) predictAuton();
+  }
+
+  // Dry runs the selected routine and publishes when each action should end
+  private void predictAuton() {
+    AutonPlan plan = selectAutonPlan();
+    double total = autonomousController.predictDuration(plan, predictedEnd);
+    if (Double.isNaN(total)) return;
+    String[] timeline = new String[plan.size()];
+    for (int i = 0; i < timeline.length; i++)
+      timeline[i] = String.format("%5.1fs %s", predictedEnd[i], plan.toString(i));
+    SmartDashboard.putStringArray(AUTON_TIMELINE, timeline);
+    SmartDashboard.putNumber(AUTON_PREDICTED, total);
+    boolean tooLong = total > AutonPredictor.AUTON_SECONDS;
+    if (tooLong && (plan != predictedPlan || !predictedTooLong))
+      DriverStation.reportWarning(String.format("Auton %s predicted to take %.1fs", 
+        plan == dashboardPlan ? AUTON_COMMANDS : m_autoSelected, total), false);
+    predictedPlan = plan;
+    predictedTooLong = tooLong;
   }
 
   void autonomousExit() {
@@ -121,24 +217,29 @@ public class RobotContainer {
     intakeController.stop();
   }
 
-  // speed==null means action is complete
-  private void performAction(Action chosenAction) {
-    switch (chosenAction.type) {
+  // Index i into the plan. isDone means action is complete
+  private void performAction(AutonPlan plan, int i) {
+    boolean done = plan.isDone(i);
+    double speed = plan.getSpeed(i);
+    switch (plan.getType(i)) {
       case Turn:
-        if (chosenAction.speed==null) { driveController.stop(); autonomousController.actionComplete(chosenAction); }
-        else driveController.move(0, chosenAction.speed);
+        if (done) { driveController.stop(); autonomousController.actionComplete(i); }
+        else driveController.move(0, speed);
         break;
       case Move: case Cruise: case Hold:
-        if (chosenAction.speed==null) { driveController.stop(); autonomousController.actionComplete(chosenAction); }
-        else driveController.move(chosenAction.speed, 0);
+        if (done) { driveController.stop(); autonomousController.actionComplete(i); }
+        else driveController.move(speed, 0);
+        break;
+      case Path: // Driven by the auton controller
+        if (done) { driveController.stop(); autonomousController.actionComplete(i); }
         break;
       case Station:
-        if (chosenAction.speed==null) { driveController.stop(); autonomousController.actionComplete(chosenAction); }
+        if (done) { driveController.stop(); autonomousController.actionComplete(i); }
         else {
-          Double speed = climbController.getClimbSpeed(chosenAction.speed);
-          if (speed==null) { driveController.stop(); autonomousController.actionComplete(chosenAction); }
+          double climbSpeed = climbController.getClimbSpeed(speed);
+          if (Double.isNaN(climbSpeed)) { driveController.stop(); autonomousController.actionComplete(i); }
           else {
-            driveController.move(speed, 0);
+            driveController.move(climbSpeed, 0);
             if (climbController.getState()==States.CENTER_STATION) {
               armController.moveArmToTarget("Stable");
             }
@@ -147,56 +248,78 @@ public class RobotContainer {
         break;
       case Stop:
         driveController.stop(); armController.stop(); intakeController.stop();
-        if (chosenAction.speed==null) autonomousController.actionComplete(chosenAction);
+        if (done) autonomousController.actionComplete(i);
         break;
       case SArm:
-        if (armController.moveArmToTarget("Stable"))
-          autonomousController.actionComplete(chosenAction);
+        if (done) { armController.stop(); autonomousController.actionComplete(i); }
+        else if (armController.moveArmToTarget("Stable"))
+          autonomousController.actionComplete(i);
         break;
       case PCone:
-        if (armController.moveArmToTarget("Cone"))
-          autonomousController.actionComplete(chosenAction);
+        if (done) { armController.stop(); autonomousController.actionComplete(i); }
+        else if (armController.moveArmToTarget("Cone"))
+          autonomousController.actionComplete(i);
         break;
       case PCube:
-        if (armController.moveArmToTarget("Cube"))
-          autonomousController.actionComplete(chosenAction);
+        if (done) { armController.stop(); autonomousController.actionComplete(i); }
+        else if (armController.moveArmToTarget("Cube"))
+          autonomousController.actionComplete(i);
         break;
       case GCone:
-        if (chosenAction.speed==null) { intakeController.stop(); autonomousController.actionComplete(chosenAction); }
+        if (done) { intakeController.stop(); autonomousController.actionComplete(i); }
         else  intakeController.grabCone(1.0);
         break;
       case RCone:
-        if (chosenAction.speed==null) { intakeController.stop(); autonomousController.actionComplete(chosenAction); }
+        if (done) { intakeController.stop(); autonomousController.actionComplete(i); }
         else intakeController.releaseCone(1.0);
         break;
       case GCube:
-        if (chosenAction.speed==null) { intakeController.stop(); autonomousController.actionComplete(chosenAction); }
+        if (done) { intakeController.stop(); autonomousController.actionComplete(i); }
         else intakeController.grabCube(0.9);
         break;
       case RCube:
-        if (chosenAction.speed==null) { intakeController.stop(); autonomousController.actionComplete(chosenAction); }
+        if (done) { intakeController.stop(); autonomousController.actionComplete(i); }
         else intakeController.releaseCube(1.0);
         break;
       default:
-        System.out.print("Skipping UNKNOWN action:" + chosenAction.type);
-        autonomousController.actionComplete(chosenAction);
+        RobotLogger.info("Skipping UNKNOWN action:{}", plan.getType(i));
+        autonomousController.actionComplete(i);
     }
   }
 
+  private void stopResources(int resources) {
+    if ((resources & Action.DRIVE) != 0) driveController.stop();
+    if ((resources & Action.ARM) != 0) armController.stop();
+    if ((resources & Action.INTAKE) != 0) intakeController.stop();
+  }
+
   /*
    * Returns true if more autonomous operations are left.. false if all operations
    * have been completed
    */
   public boolean autonomousOp(long timeInAutonomous) {
     // Get the next operation to perform and magnitude 
-    Action chosenAction = autonomousController.getNextAction(timeInAutonomous);
+    long start = profiler.start();
+    int chosenAction = autonomousController.getNextAction(timeInAutonomous);
+    start = profiler.record(Stage.AutonNextAction, start);
 
-    if (chosenAction != null) {
+    if (chosenAction != AutonPlan.NONE) {
+      AutonPlan plan = autonomousController.getPlan();
+      int last = plan.getGroupLast(chosenAction);
       if (lastAction != chosenAction) {
-        System.out.println("Chosen action at time:" + timeInAutonomous + " is " + chosenAction);
+        for (int i = chosenAction; i <= last; i++)
+          RobotLogger.info("Chosen action at time:{} is {}", timeInAutonomous, plan.toString(i));
         lastAction = chosenAction;
       }
-      performAction(chosenAction);
+      // All unfinished actions of a parallel group run in the same tick
+      for (int i = chosenAction; i <= last && !plan.isGroupFinished(chosenAction); i++)
+        if (!plan.isFinished(i)) performAction(plan, i);
+      if (plan.isGroupFinished(chosenAction)) {
+        // Stop whatever a deadline group cut short
+        for (int i = chosenAction; i <= last; i++)
+          if (!plan.isFinished(i)) stopResources(plan.getType(i).resources);
+      }
+      profiler.record(Stage.AutonPerform, start);
       return true;
     } else {
       driveController.stop();
@@ -209,9 +332,9 @@ public class RobotContainer {
     tickCount = 0;
     driveController.init();
     armController.init();
-    boolean resetEncoderPos = SmartDashboard.getBoolean("Reset Encoder", false);
+    boolean resetEncoderPos = Tunables.RESET_ENCODER.get();
     if (resetEncoderPos) {
-      System.out.println("Resetting arm encoder pos");
+      RobotLogger.info("Resetting arm encoder pos");
       armController.resetEncoderPos();
       SmartDashboard.putBoolean("Reset Encoder", false);
     }
@@ -222,28 +345,33 @@ public class RobotContainer {
     calibrationCycle = (int) SmartDashboard.getNumber(DashboardItem.Calibrate_Cycle.name(), calibrationCycle);
     calibrationCycle++;
     SmartDashboard.putNumber(DashboardItem.Calibrate_Cycle.name(), calibrationCycle);
-    System.out.println("Calibrate Cycle:" + calibrationCycle);
+    RobotLogger.info("Calibrate Cycle:{}", calibrationCycle);
     autonomousController.calibrationInit(calibrationCycle);
   }
 
   public boolean calibrate(long timeInTest) {
-    Action chosenAction = autonomousController.calibrate(calibrationCycle, timeInTest);
-    if (chosenAction != null) {
-      if (chosenAction.type != null)
-        performAction(chosenAction);
+    int chosenAction = autonomousController.calibrate(calibrationCycle, timeInTest);
+    if (chosenAction != AutonPlan.NONE) {
+      performAction(autonomousController.getPlan(), chosenAction);
       return true;
     } else {
-      System.out.println("Calibrate complete for:" + calibrationCycle);
+      RobotLogger.info("Calibrate complete for:{}", calibrationCycle);
       return false;
     }
   }
 
   void periodic() {
     tickCount++;
+    long lap = profiler.start();
     armController.periodic(tickCount);
+    lap = profiler.record(Stage.ArmPeriodic, lap);
     driveController.periodic(tickCount);
+    lap = profiler.record(Stage.DrivePeriodic, lap);
     GyroSubsystem.getInstance().periodic(tickCount);
-    SmartDashboard.putNumber("Tilt", accelerometer.getTilt());
+    lap = profiler.record(Stage.GyroPeriodic, lap);
+    canBudget.periodic(tickCount);
+    telemetry.periodic();
+    profiler.record(Stage.Publish, lap);
   }
 
   private double limit(double orig, double limit) {
@@ -253,8 +381,9 @@ public class RobotContainer {
   }
 
   public void teleOp() {
+    long lap = profiler.start();
     if (driveteleController.shouldRoboMove()) {
-      System.out.println("Tilt:"+accelerometer.getTilt());
+      RobotLogger.debug("Tilt:{}", accelerometer.getTilt());
       double speed = limit(driveteleController.getSpeed(), 0.8);
       double rotation = limit(driveteleController.getRotation(), 0.8);
       if ((speed != 0) || (rotation != 0))
@@ -264,6 +393,7 @@ public class RobotContainer {
     } else {
       driveController.stop();
     }
+    lap = profiler.record(Stage.TeleDrive, lap);
 
     if (armTeleController.shouldArmMove()) {
       armController.setCurrentTarget(null); // Stop automated move to target if user start manually adjusting arm
@@ -292,6 +422,7 @@ public class RobotContainer {
     } else {
       armController.stop();
     }
+    lap = profiler.record(Stage.TeleArm, lap);
 
     if (armTeleController.shouldGrabCone()) {
       intakeController.grabCone(1.0);
@@ -304,6 +435,7 @@ public class RobotContainer {
     } else {
       intakeController.stop();
     }
+    profiler.record(Stage.TeleIntake, lap);
   }
 
   public void autonCommand(int bigNum) {
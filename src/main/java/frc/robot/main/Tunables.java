@@ -0,0 +1,52 @@
+package frc.robot.main;
+
+import frc.robot.interfaces.ArmController;
+import frc.robot.interfaces.DriveController;
+import frc.robot.subsystem.HardwareThread;
+import frc.robot.util.TunableBoolean;
+import frc.robot.util.TunableNumber;
+
+/**
+ * Registry of every dashboard value the robot code reads. Defaults match the values the
+ * controllers and subsystems publish at startup. Read these instead of SmartDashboard.getNumber.
+ */
+public final class Tunables {
+    private Tunables() {}
+
+    // Arm limits and targets. Elevator targets are arm extension in inches.
+    public static final TunableNumber ARM_MAX_HEIGHT = new TunableNumber(ArmController.ARM_MAX_HEIGHT, 78);
+    public static final TunableNumber ARM_MAX_WIDTH = new TunableNumber(ArmController.ARM_MAX_WIDTH, 48);
+    public static final TunableNumber LIFT_MIN_ANGLE = new TunableNumber(ArmController.LIFT_MIN_ANGLE, 5);
+    public static final TunableNumber LIFT_MAX_ANGLE = new TunableNumber(ArmController.LIFT_MAX_ANGLE, 82);
+    public static final TunableNumber LIFT_CONE = new TunableNumber(ArmController.LIFT_CONE_KEY, 60);
+    public static final TunableNumber LIFT_CUBE = new TunableNumber(ArmController.LIFT_CUBE_KEY, 65);
+    public static final TunableNumber LIFT_STABLE = new TunableNumber(ArmController.LIFT_STAB_KEY, 50);
+    public static final TunableNumber LIFT_LOW_LIMIT = new TunableNumber(ArmController.LIFT_LOW_LIMIT, 0);
+    public static final TunableNumber LIFT_RANGE = new TunableNumber(ArmController.LIFT_RANGE, 0);
+    public static final TunableNumber ELEV_CONE = new TunableNumber(ArmController.ELEV_CONE_KEY, 64);
+    public static final TunableNumber ELEV_CUBE = new TunableNumber(ArmController.ELEV_CUBE_KEY, 70.7);
+    public static final TunableNumber ELEV_STABLE = new TunableNumber(ArmController.ELEV_STAB_KEY, 4);
+    public static final TunableNumber ELEV_LOW_LIMIT = new TunableNumber(ArmController.ELEV_LOW_LIMIT, 0);
+    public static final TunableNumber ELEV_RANGE = new TunableNumber(ArmController.ELEV_RANGE, 70);
+    public static final TunableNumber ELEV_CONV_FACTOR = new TunableNumber(ArmController.ELEV_CONV_FACTOR, 0.75);
+    public static final TunableNumber SPEED_LIMIT_POINT = new TunableNumber(ArmController.SPEED_LIMIT_POINT, 2.0);
+
+    // Drive
+    public static final TunableBoolean RESET_ENCODER = new TunableBoolean(DriveController.RESET_ENCODER, false);
+    public static final TunableNumber ROTATIONAL_ACC_LIMIT = new TunableNumber(DriveController.ROTATIONAL_ACC_LIMIT, 0.1);
+    public static final TunableBoolean CLOSED_LOOP_DRIVE = new TunableBoolean(DriveController.CLOSED_LOOP_DRIVE, false);
+
+    // Motor output keep-alive when unchanged
+    public static final TunableNumber MOTOR_KEEPALIVE = new TunableNumber(HardwareThread.KEEPALIVE_MS, 100);
+
+    // Calibration values, indexed by DashboardItem ordinal
+    private static final TunableNumber[] dashboardItems = new TunableNumber[DashboardItem.values().length];
+    static {
+        for (DashboardItem item : DashboardItem.values())
+            dashboardItems[item.ordinal()] = new TunableNumber(item.getKey(), item.getDefaultValue());
+    }
+
+    public static TunableNumber get(DashboardItem item) {
+        return dashboardItems[item.ordinal()];
+    }
+}
@@ -1,13 +1,18 @@
 package frc.robot.subsystem;
 
 import edu.wpi.first.wpilibj.BuiltInAccelerometer;
+import frc.robot.subsystem.RobotState.Signal;
 
 public class AccelerometerSubsystem {
     private BuiltInAccelerometer mRioAccel = new BuiltInAccelerometer();
     static private AccelerometerSubsystem self;
+    private final RobotState state = RobotState.getInstance();
     double simulatedTilt;
 
     private AccelerometerSubsystem() {
+        state.register(Signal.AccelX, mRioAccel::getX);
+        state.register(Signal.AccelY, mRioAccel::getY);
+        state.register(Signal.AccelZ, mRioAccel::getZ);
         self = this;
     }
 
@@ -16,12 +21,13 @@ public class AccelerometerSubsystem {
     }
 
     public double getPitch() {
-        return Math.atan2((-mRioAccel.getX()),
-                Math.sqrt(mRioAccel.getY() * mRioAccel.getY() + mRioAccel.getZ() * mRioAccel.getZ())) * 57.3;
+        double y = state.get(Signal.AccelY);
+        double z = state.get(Signal.AccelZ);
+        return Math.atan2(-state.get(Signal.AccelX), Math.sqrt(y * y + z * z)) * 57.3;
     }
 
     public double getRoll() {
-        return Math.atan2(mRioAccel.getY(), mRioAccel.getZ()) * 57.3;
+        return Math.atan2(state.get(Signal.AccelY), state.get(Signal.AccelZ)) * 57.3;
     }
 
     // returns the magnititude of the robot's tilt calculated by the root of
@@ -0,0 +1,113 @@
+package frc.robot.subsystem;
+
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
+
+import edu.wpi.first.hal.can.CANStatus;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.main.Constants.DriveConstants;
+import frc.robot.util.RobotLogger;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Rate;
+
+/**
+ * Declares which status frames each SparkMax needs and how often, and watches the CAN bus.
+ * Status 0 has applied output and faults, 1 has velocity, current and temperature, 2 has position.
+ * Frames 3-6 (analog, alternate and absolute encoders) are not used by any device.
+ *
+ * <p>Bus utilization and error counts from RobotController.getCANStatus are sampled once a
+ * second, published, and reported to the driver station when they cross a threshold.
+ */
+public class CanBudget {
+    // Period in ms of status frames 0-6
+    private static final int[] ENCODER_FRAMES = {20, 20, 20, 500, 500, 500, 500}; // Position and current are read
+    private static final int[] DRIVE_FRAMES = {20, 20, 5, 500, 500, 500, 500}; // Position every hardware thread frame, for odometry
+    private static final int[] CURRENT_FRAMES = {100, 20, 500, 500, 500, 500, 500}; // Only current is read
+
+    private static final double UTILIZATION_ALARM = 0.7;
+    private static final int ERROR_COUNT_ALARM = 96; // CAN error warning level
+    private static final int SAMPLE_TICKS = 50;
+
+    static private CanBudget self;
+    private double utilization = 0;
+    private int busOffCount = 0, txFullCount = 0, receiveErrors = 0, transmitErrors = 0;
+    private double framesPerSecond = 0;
+    private boolean utilizationAlarm = false, errorAlarm = false;
+
+    private CanBudget() {
+        Telemetry telemetry = Telemetry.getInstance();
+        telemetry.addNumber("CAN Utilization", Rate.Hz1, 0.5, () -> utilization*100);
+        telemetry.addNumber("CAN Bus Off", Rate.Hz1, 0, () -> busOffCount);
+        telemetry.addNumber("CAN TX Full", Rate.Hz1, 0, () -> txFullCount);
+        telemetry.addNumber("CAN RX Errors", Rate.Hz1, 0, () -> receiveErrors);
+        telemetry.addNumber("CAN TX Errors", Rate.Hz1, 0, () -> transmitErrors);
+        telemetry.addNumber("CAN Status Frames/s", Rate.Hz1, 1, () -> framesPerSecond);
+        self = this;
+    }
+
+    public static CanBudget getInstance() {
+        return self==null?new CanBudget():self;
+    }
+
+    private static int[] framesFor(int deviceId) {
+        switch (deviceId) {
+            case DriveConstants.SparkDevNumRight1:
+            case DriveConstants.SparkDevNumLeft1:
+                return DRIVE_FRAMES;
+            case DriveConstants.ELEV_LT:
+            case DriveConstants.PULLEY:
+                return ENCODER_FRAMES;
+            case DriveConstants.SparkDevNumRight2:
+            case DriveConstants.SparkDevNumLeft2:
+            case DriveConstants.ELEV_RT:
+            case DriveConstants.COUNTER_PULLEY:
+            case DriveConstants.LIFT_LT:
+            case DriveConstants.INTAKE:
+                return CURRENT_FRAMES;
+            default:
+                return null;
+        }
+    }
+
+    // Call after all subsystems are created and before the hardware thread starts
+    public void configure() {
+        PeriodicFrame[] frames = PeriodicFrame.values();
+        framesPerSecond = 0;
+        for (MotorIO motor : HardwareThread.getInstance().getMotors()) {
+            int[] periods = framesFor(motor.getDeviceId());
+            if (periods==null) {
+                RobotLogger.info("No CAN budget for device {}", motor.getDeviceId());
+                continue;
+            }
+            for (int i = 0; i < frames.length; i++) {
+                motor.setPeriodicFramePeriod(frames[i], periods[i]);
+                framesPerSecond += 1000.0/periods[i];
+            }
+        }
+        RobotLogger.info("CAN status frames/s:{}", framesPerSecond);
+    }
+
+    public void periodic(long tickCount) {
+        if (tickCount % SAMPLE_TICKS != 0) return;
+        CANStatus status = RobotController.getCANStatus();
+        utilization = status.percentBusUtilization;
+        receiveErrors = status.receiveErrorCount;
+        transmitErrors = status.transmitErrorCount;
+        if (status.busOffCount > busOffCount)
+            DriverStation.reportWarning("CAN bus off " + (status.busOffCount - busOffCount) + " times", false);
+        if (status.txFullCount > txFullCount)
+            DriverStation.reportWarning("CAN TX buffer full " + (status.txFullCount - txFullCount) + " times", false);
+        busOffCount = status.busOffCount;
+        txFullCount = status.txFullCount;
+
+        boolean alarm = utilization > UTILIZATION_ALARM;
+        if (alarm && !utilizationAlarm)
+            DriverStation.reportWarning("CAN utilization " + (int) (utilization*100) + "%", false);
+        utilizationAlarm = alarm;
+
+        alarm = receiveErrors >= ERROR_COUNT_ALARM || transmitErrors >= ERROR_COUNT_ALARM;
+        if (alarm && !errorAlarm)
+            DriverStation.reportWarning("CAN error counts RX:" + receiveErrors + " TX:" + transmitErrors, false);
+        errorAlarm = alarm;
+    }
+}
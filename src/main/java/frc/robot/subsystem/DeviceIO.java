@@ -0,0 +1,23 @@
+package frc.robot.subsystem;
+
+/**
+ * A device whose configuration is changed from the main loop but applied on the hardware thread.
+ * The main loop updates the desired configuration and calls changed(). The hardware thread then
+ * calls apply() before it reads sensors in its next cycle.
+ */
+abstract class DeviceIO {
+    volatile long requestedGeneration = 0;
+    long appliedGeneration = 0; // Hardware thread only
+
+    DeviceIO() {
+        HardwareThread.getInstance().addDevice(this);
+    }
+
+    // Main thread, after updating the desired configuration
+    protected final void changed() {
+        HardwareThread.getInstance().commandIssued(this);
+    }
+
+    // Hardware thread. Applies whatever desired configuration differs from what was applied.
+    protected abstract void apply();
+}
@@ -2,15 +2,18 @@ package frc.robot.subsystem;
 
 //import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
 //import com.ctre.phoenix.motorcontrol.can.WPI_VictorSPX;
-import com.revrobotics.CANSparkMax;
-import com.revrobotics.RelativeEncoder;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.DifferentialDriveWheelSpeeds;
 import edu.wpi.first.wpilibj.drive.DifferentialDrive;
-import edu.wpi.first.wpilibj.motorcontrol.MotorControllerGroup;
+import edu.wpi.first.wpilibj.drive.DifferentialDrive.WheelSpeeds;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.main.Constants.*;
+import frc.robot.subsystem.RobotState.Signal;
+import frc.robot.util.RobotLogger;
 
 public class DriveSubsystem extends SubsystemBase {
     /*private final WPI_TalonSRX m_rightDrive2 = new WPI_TalonSRX(DriveConstants.TalonDevNumLt);
@@ -19,39 +22,40 @@ public class DriveSubsystem extends SubsystemBase {
     private final WPI_VictorSPX m_leftDrive1 = new WPI_VictorSPX(DriveConstants.VictorDevNumRt);
     */
 
-    private final CANSparkMax m_rightDrive1 = new CANSparkMax(DriveConstants.SparkDevNumRight1, MotorType.kBrushless); 
-    private final CANSparkMax m_rightDrive2 = new CANSparkMax(DriveConstants.SparkDevNumRight2, MotorType.kBrushless);
-    private final CANSparkMax m_leftDrive1 = new CANSparkMax(DriveConstants.SparkDevNumLeft1, MotorType.kBrushless);
-    private final CANSparkMax m_leftDrive2 = new CANSparkMax(DriveConstants.SparkDevNumLeft2, MotorType.kBrushless);
-
-    RelativeEncoder rtEncoder1 = m_rightDrive1.getEncoder();
-    RelativeEncoder rtEncoder2 = m_rightDrive2.getEncoder();
-
-    RelativeEncoder ltEncoder1 = m_leftDrive1.getEncoder();
-    RelativeEncoder ltEncoder2 = m_leftDrive2.getEncoder();
-
-    private final MotorControllerGroup m_rightMotors = new MotorControllerGroup(m_rightDrive1, m_rightDrive2);
-    private final MotorControllerGroup m_leftMotors = new MotorControllerGroup(m_leftDrive1, m_leftDrive2);
-
-    private final DifferentialDrive robotDrive = new DifferentialDrive(m_leftMotors, m_rightMotors);
+    private final MotorIO m_rightDrive1 = new MotorIO(DriveConstants.SparkDevNumRight1, MotorType.kBrushless); 
+    private final MotorIO m_rightDrive2 = new MotorIO(DriveConstants.SparkDevNumRight2, MotorType.kBrushless);
+    private final MotorIO m_leftDrive1 = new MotorIO(DriveConstants.SparkDevNumLeft1, MotorType.kBrushless);
+    private final MotorIO m_leftDrive2 = new MotorIO(DriveConstants.SparkDevNumLeft2, MotorType.kBrushless);
+
+    private static final double DEADBAND = 0.02; // Same as DifferentialDrive
+    // Motor rpm per wheel meter per second, and the velocity P gain from volts per m/s error
+    private static final double RPM_PER_METER_PER_SECOND = 60/DriveConstants.kMetersPerEncoderUnit;
+    private static final double VELOCITY_P = DriveConstants.kPDriveVel/DriveConstants.kNominalVolts/RPM_PER_METER_PER_SECOND;
+    private final ChassisSpeeds chassisSpeeds = new ChassisSpeeds();
+    private boolean velocityMode = false;
     private double currentSpeed = 0;
     private double currentRotation = 0;
+    private final RobotState state = RobotState.getInstance();
 
     public DriveSubsystem() {
-        // We need to invert one side of the drivetrain so that positive voltages
-        // result in both sides moving forward. Depending on how your robot's
-        // gearbox is constructed, you might have to invert the left side instead.
-        m_leftMotors.setInverted(true);
-        
         m_rightDrive1.setSmartCurrentLimit(35);
         m_rightDrive2.setSmartCurrentLimit(35);
         m_leftDrive1.setSmartCurrentLimit(35);
         m_leftDrive2.setSmartCurrentLimit(35);
+        // Outputs are scaled as if the battery were always at nominal voltage
+        for (MotorIO motor : new MotorIO[] {m_rightDrive1, m_rightDrive2, m_leftDrive1, m_leftDrive2}) {
+            motor.setVoltageCompensation(DriveConstants.kNominalVolts);
+            motor.setClosedLoopGains(VELOCITY_P, 0, 0, 0, -1, 1);
+        }
+
+        state.register(Signal.DriveLeftPos, () -> -m_leftDrive1.readPosition());
+        state.register(Signal.DriveRightPos, m_rightDrive1::readPosition);
+        state.register(Signal.DriveLeftVel, () -> -m_leftDrive1.readVelocity()/60.0);
+        state.register(Signal.DriveRightVel, () -> m_rightDrive1.readVelocity()/60.0);
+        state.register(Signal.DriveLeftCurrent, () -> m_leftDrive1.readCurrent()+m_leftDrive2.readCurrent());
+        state.register(Signal.DriveRightCurrent, () -> m_rightDrive1.readCurrent()+m_rightDrive2.readCurrent());
 
        init();
-
-        //robotDrive.setExpiration(1.0);
-        robotDrive.setSafetyEnabled(false);
     }
 
     public void init() {
@@ -78,31 +82,72 @@ public class DriveSubsystem extends SubsystemBase {
     }
 
     public double getRightEncoderPosition() {
-        return  rtEncoder1!=null? rtEncoder1.getPosition(): 0;
-        //return  rtEncoder1!=null? (rtEncoder1.getPosition()+rtEncoder2.getPosition())/2.0 : 0;
+        return state.get(Signal.DriveRightPos);
     }
 
     public double getLeftEncoderPosition() {
-        return  ltEncoder1!=null? -ltEncoder1.getPosition(): 0;
-        //return  ltEncoder1!=null? -(ltEncoder1.getPosition()+ltEncoder2.getPosition())/2.0 : 0;
+        return state.get(Signal.DriveLeftPos);
+    }
+
+    // Encoder units per sec
+    public double getLeftVelocity() {
+        return state.get(Signal.DriveLeftVel);
     }
 
-    public DifferentialDrive getRoboDrive() {
-        return robotDrive;
+    public double getRightVelocity() {
+        return state.get(Signal.DriveRightVel);
     }
 
     public void resetEncoders() {
-        System.out.println("Resetting encoders");
-        if (rtEncoder1!=null) rtEncoder1.setPosition(0);
-        if (rtEncoder2!=null) rtEncoder2.setPosition(0);
-        if (ltEncoder1!=null) ltEncoder1.setPosition(0);
-        if (ltEncoder2!=null) ltEncoder2.setPosition(0);
+        RobotLogger.info("Resetting encoders");
+        setEncoderPositions(0, 0);
+    }
+
+    // Left position is in the same sign convention as getLeftEncoderPosition
+    private void setEncoderPositions(double left, double right) {
+        m_rightDrive1.setEncoderPosition(right);
+        m_rightDrive2.setEncoderPosition(right);
+        m_leftDrive1.setEncoderPosition(-left);
+        m_leftDrive2.setEncoderPosition(-left);
+        state.set(Signal.DriveLeftPos, left);
+        state.set(Signal.DriveRightPos, right);
+    }
+
+    // Wheel speed in meters per second of a full speed command, in the mode last driven
+    public double getMaxSpeed() {
+        return velocityMode ? DriveConstants.kMaxCommandSpeedMetersPerSecond
+            : DriveConstants.kNominalVolts/DriveConstants.kvVoltSecondsPerMeter;
     }
 
     public void stopMotor() {
+        velocityMode = false;
         currentSpeed = 0;
         currentRotation = 0;
-        robotDrive.stopMotor();
+        setOutputs(0, 0);
+    }
+
+    // We need to invert one side of the drivetrain so that positive voltages
+    // result in both sides moving forward. This is done here rather than on the
+    // SparkMax so that the left encoder does not change direction.
+    private void setOutputs(double left, double right) {
+        velocityMode = false;
+        m_leftDrive1.set(-left);
+        m_leftDrive2.set(-left);
+        m_rightDrive1.set(right);
+        m_rightDrive2.set(right);
+    }
+
+    /**
+     * Drives each side with the given voltage. The SparkMax voltage compensation makes a duty cycle
+     * the same voltage whatever the battery is at.
+     */
+    public void setVoltages(double leftVolts, double rightVolts) {
+        double left = MathUtil.clamp(leftVolts/DriveConstants.kNominalVolts, -1, 1);
+        double right = MathUtil.clamp(rightVolts/DriveConstants.kNominalVolts, -1, 1);
+        // Keeps stop() and the simulated encoders working, as if driven by arcadeDrive
+        currentSpeed = (left+right)/2;
+        currentRotation = (right-left)/2;
+        setOutputs(left, right);
     }
 
     /**
@@ -114,16 +159,53 @@ public class DriveSubsystem extends SubsystemBase {
     public void arcadeDrive(double speed, double rotation) {
         currentSpeed = speed;
         currentRotation = rotation;
-        robotDrive.arcadeDrive(speed, rotation);
+        WheelSpeeds speeds = DifferentialDrive.arcadeDriveIK(MathUtil.applyDeadband(speed, DEADBAND),
+            MathUtil.applyDeadband(rotation, DEADBAND), true);
+        setOutputs(speeds.left, speeds.right);
+    }
+
+    /**
+     * Drives with the same controls as arcadeDrive, but holds wheel velocities with the SparkMax
+     * velocity PID and a ks and kv feedforward, so a command drives at the same speed whatever the
+     * battery is at. A full speed command is kMaxCommandSpeedMetersPerSecond.
+     */
+    public void velocityDrive(double speed, double rotation) {
+        currentSpeed = speed;
+        currentRotation = rotation;
+        // Squared like arcadeDrive
+        speed = MathUtil.applyDeadband(speed, DEADBAND);
+        rotation = MathUtil.applyDeadband(rotation, DEADBAND);
+        speed = Math.copySign(speed*speed, speed);
+        rotation = Math.copySign(rotation*rotation, rotation);
+        // A full rotation command turns the wheels at full speed in opposite directions
+        double maxSpeed = DriveConstants.kMaxCommandSpeedMetersPerSecond;
+        chassisSpeeds.vxMetersPerSecond = speed*maxSpeed;
+        chassisSpeeds.omegaRadiansPerSecond = rotation*maxSpeed*2/DriveConstants.kTrackwidthMeters;
+        DifferentialDriveWheelSpeeds wheels = DriveConstants.kDriveKinematics.toWheelSpeeds(chassisSpeeds);
+        wheels.desaturate(maxSpeed);
+        setVelocities(wheels.leftMetersPerSecond, wheels.rightMetersPerSecond);
+    }
+
+    // The left side is inverted as in setOutputs
+    private void setVelocities(double left, double right) {
+        velocityMode = true;
+        double leftVolts = feedforward(left), rightVolts = feedforward(right);
+        m_leftDrive1.setVelocity(-left*RPM_PER_METER_PER_SECOND, -leftVolts);
+        m_leftDrive2.setVelocity(-left*RPM_PER_METER_PER_SECOND, -leftVolts);
+        m_rightDrive1.setVelocity(right*RPM_PER_METER_PER_SECOND, rightVolts);
+        m_rightDrive2.setVelocity(right*RPM_PER_METER_PER_SECOND, rightVolts);
+    }
+
+    private static double feedforward(double metersPerSecond) {
+        if (metersPerSecond==0) return 0;
+        return Math.copySign(DriveConstants.ksVolts, metersPerSecond) + DriveConstants.kvVoltSecondsPerMeter*metersPerSecond;
     }
 
     @Override
     public void simulationPeriodic() {
         double rotToEncVal = currentRotation/2.0;
         double speedToEncVal = currentSpeed/2.0;
-        if (rtEncoder1!=null) rtEncoder1.setPosition(rtEncoder1.getPosition()+speedToEncVal+rotToEncVal);
-        if (rtEncoder2!=null) rtEncoder2.setPosition(rtEncoder2.getPosition()+speedToEncVal+rotToEncVal);
-        if (ltEncoder1!=null) ltEncoder1.setPosition(ltEncoder1.getPosition()-speedToEncVal+rotToEncVal);
-        if (ltEncoder2!=null) ltEncoder2.setPosition(ltEncoder2.getPosition()-speedToEncVal+rotToEncVal);
+        setEncoderPositions(getLeftEncoderPosition()+speedToEncVal-rotToEncVal,
+            getRightEncoderPosition()+speedToEncVal+rotToEncVal);
     }
 }
\ No newline at end of file
@@ -1,79 +1,54 @@
 package frc.robot.subsystem;
 
-import com.revrobotics.CANSparkMax;
-import com.revrobotics.CANSparkMaxLowLevel.MotorType;
-
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.DifferentialDriveKinematics;
-import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import edu.wpi.first.math.kinematics.DifferentialDriveWheelSpeeds;
-import edu.wpi.first.wpilibj.Encoder;
-import edu.wpi.first.wpilibj.motorcontrol.MotorController;
-import edu.wpi.first.wpilibj.motorcontrol.MotorControllerGroup;
 
 import frc.robot.main.Constants.DriveConstants;
 
+/**
+ * Field position and wheel speed control on top of DriveSubsystem. Odometry is integrated on the
+ * hardware thread by PoseTracker from the SparkMax encoders and the gyro. Wheel speeds are driven
+ * with voltage feedforward plus a P loop on the measured velocity.
+ */
 public class DriveSubsystemWithOdometry {
-    public static final double kMaxSpeed = 3.0; // meters per second
+  public static final double kMaxSpeed = 3.0; // meters per second
   public static final double kMaxAngularSpeed = 2 * Math.PI; // one rotation per second
 
-  private static final double kTrackWidth = 0.381 * 2; // meters
-  private static final double kWheelRadius = 0.0508; // meters
-  private static final int kEncoderResolution = 4096;
-
-  private final MotorController m_leftLeader = new CANSparkMax(DriveConstants.SparkDevNumRight1, MotorType.kBrushless);
-  private final MotorController m_leftFollower = new CANSparkMax(DriveConstants.SparkDevNumRight2, MotorType.kBrushless);
-  private final MotorController m_rightLeader =  new CANSparkMax(DriveConstants.SparkDevNumLeft1, MotorType.kBrushless);
-  private final MotorController m_rightFollower = new CANSparkMax(DriveConstants.SparkDevNumLeft2, MotorType.kBrushless);
-
-  private final Encoder m_leftEncoder = new Encoder(0, 1);
-  private final Encoder m_rightEncoder = new Encoder(2, 3);
+  private final DriveSubsystem m_drive;
+  private final PoseTracker m_tracker = new PoseTracker();
+  private final double[] m_pose = new double[PoseTracker.SIZE];
+  private final double[] m_pastPose = new double[3];
 
-  private final MotorControllerGroup m_leftGroup =
-      new MotorControllerGroup(m_leftLeader, m_leftFollower);
-  private final MotorControllerGroup m_rightGroup =
-      new MotorControllerGroup(m_rightLeader, m_rightFollower);
+  private final PIDController m_leftPIDController = new PIDController(DriveConstants.kPDriveVel, 0, 0);
+  private final PIDController m_rightPIDController = new PIDController(DriveConstants.kPDriveVel, 0, 0);
 
-  private final GyroSubsystem m_gyro;
+  private final DifferentialDriveKinematics m_kinematics = DriveConstants.kDriveKinematics;
 
-  private final PIDController m_leftPIDController = new PIDController(1, 0, 0);
-  private final PIDController m_rightPIDController = new PIDController(1, 0, 0);
+  // Gains are for example purposes only - must be determined for your own robot!
+  private final SimpleMotorFeedforward m_feedforward = new SimpleMotorFeedforward(DriveConstants.ksVolts,
+      DriveConstants.kvVoltSecondsPerMeter, DriveConstants.kaVoltSecondsSquaredPerMeter);
 
-  private final DifferentialDriveKinematics m_kinematics =
-      new DifferentialDriveKinematics(kTrackWidth);
+  // Must be created before the hardware thread starts
+  public DriveSubsystemWithOdometry(DriveSubsystem drive) {
+    m_drive = drive;
+  }
 
-  private final DifferentialDriveOdometry m_odometry;
+  public double getLeftDistance() {
+    return m_drive.getLeftEncoderPosition() * DriveConstants.kMetersPerEncoderUnit;
+  }
 
-  // Gains are for example purposes only - must be determined for your own robot!
-  private final SimpleMotorFeedforward m_feedforward = new SimpleMotorFeedforward(1, 3);
+  public double getRightDistance() {
+    return m_drive.getRightEncoderPosition() * DriveConstants.kMetersPerEncoderUnit;
+  }
 
-  /**
-   * Constructs a differential drive object. Sets the encoder distance per pulse and resets the
-   * gyro.
-   */
-  public DriveSubsystemWithOdometry(GyroSubsystem gyro) {
-    m_gyro = gyro;
-    m_gyro.reset();
-
-    // We need to invert one side of the drivetrain so that positive voltages
-    // result in both sides moving forward. Depending on how your robot's
-    // gearbox is constructed, you might have to invert the left side instead.
-    m_rightGroup.setInverted(true);
-
-    // Set the distance per pulse for the drive encoders. We can simply use the
-    // distance traveled for one rotation of the wheel divided by the encoder
-    // resolution.
-    m_leftEncoder.setDistancePerPulse(2 * Math.PI * kWheelRadius / kEncoderResolution);
-    m_rightEncoder.setDistancePerPulse(2 * Math.PI * kWheelRadius / kEncoderResolution);
-
-    m_leftEncoder.reset();
-    m_rightEncoder.reset();
-
-    m_odometry =
-        new DifferentialDriveOdometry(
-            m_gyro.getRotation2d(), m_leftEncoder.getDistance(), m_rightEncoder.getDistance());
+  public DifferentialDriveWheelSpeeds getWheelSpeeds() {
+    return new DifferentialDriveWheelSpeeds(m_drive.getLeftVelocity() * DriveConstants.kMetersPerEncoderUnit,
+        m_drive.getRightVelocity() * DriveConstants.kMetersPerEncoderUnit);
   }
 
   /**
@@ -85,12 +60,11 @@ public class DriveSubsystemWithOdometry {
     final double leftFeedforward = m_feedforward.calculate(speeds.leftMetersPerSecond);
     final double rightFeedforward = m_feedforward.calculate(speeds.rightMetersPerSecond);
 
-    final double leftOutput =
-        m_leftPIDController.calculate(m_leftEncoder.getRate(), speeds.leftMetersPerSecond);
-    final double rightOutput =
-        m_rightPIDController.calculate(m_rightEncoder.getRate(), speeds.rightMetersPerSecond);
-    m_leftGroup.setVoltage(leftOutput + leftFeedforward);
-    m_rightGroup.setVoltage(rightOutput + rightFeedforward);
+    final double leftOutput = m_leftPIDController.calculate(
+        m_drive.getLeftVelocity() * DriveConstants.kMetersPerEncoderUnit, speeds.leftMetersPerSecond);
+    final double rightOutput = m_rightPIDController.calculate(
+        m_drive.getRightVelocity() * DriveConstants.kMetersPerEncoderUnit, speeds.rightMetersPerSecond);
+    m_drive.setVoltages(leftOutput + leftFeedforward, rightOutput + rightFeedforward);
   }
 
   /**
@@ -100,13 +74,34 @@ public class DriveSubsystemWithOdometry {
    * @param rot Angular velocity in rad/s.
    */
   public void drive(double xSpeed, double rot) {
-    var wheelSpeeds = m_kinematics.toWheelSpeeds(new ChassisSpeeds(xSpeed, 0.0, rot));
-    setSpeeds(wheelSpeeds);
+    setSpeeds(m_kinematics.toWheelSpeeds(new ChassisSpeeds(xSpeed, 0.0, rot)));
+  }
+
+  public void drive(ChassisSpeeds speeds) {
+    setSpeeds(m_kinematics.toWheelSpeeds(speeds));
+  }
+
+  // Latest pose from the hardware thread. Allocates, so read it once per tick.
+  public Pose2d getPose() {
+    m_tracker.read(m_pose);
+    return new Pose2d(m_pose[PoseTracker.X], m_pose[PoseTracker.Y], new Rotation2d(m_pose[PoseTracker.HEADING]));
+  }
+
+  // Pose at an earlier FPGA time, or null if older than the history
+  public Pose2d getPoseAt(long timeMicros) {
+    if (!m_tracker.getHistory().sample(timeMicros, m_pastPose)) return null;
+    return new Pose2d(m_pastPose[0], m_pastPose[1], new Rotation2d(m_pastPose[2]));
+  }
+
+  // FPGA time at which the last pose was integrated
+  public long getPoseMicros() {
+    return (long) m_pose[PoseTracker.MICROS];
   }
 
-  /** Updates the field-relative position. */
-  public void updateOdometry() {
-    m_odometry.update(
-        m_gyro.getRotation2d(), m_leftEncoder.getDistance(), m_rightEncoder.getDistance());
+  // Encoder and gyro resets don't move the pose, so this is the only way to set it
+  public void resetOdometry(Pose2d pose) {
+    m_leftPIDController.reset();
+    m_rightPIDController.reset();
+    m_tracker.reset(pose.getX(), pose.getY(), pose.getRotation().getRadians());
   }
 }
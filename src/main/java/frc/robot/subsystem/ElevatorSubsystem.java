@@ -1,50 +1,66 @@
 package frc.robot.subsystem;
 
-import com.revrobotics.CANSparkMax;
-import com.revrobotics.RelativeEncoder;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.wpilibj.drive.DifferentialDrive;
-import edu.wpi.first.wpilibj.motorcontrol.MotorControllerGroup;
+import edu.wpi.first.wpilibj.drive.DifferentialDrive.WheelSpeeds;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.interfaces.ArmController;
 import frc.robot.main.Constants;
-
+import frc.robot.main.Tunables;
+import frc.robot.main.Constants.ElevatorConstants;
+import frc.robot.subsystem.RobotState.Signal;
+import frc.robot.util.RobotLogger;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Rate;
+
+/**
+ * Arm elevator. The right motor follows the left. extendArm and retractArm drive it directly,
+ * and moveToTarget hands the target to Smart Motion on the left SparkMax, which ramps to it and
+ * holds it at 1kHz until the elevator is driven directly again.
+ */
 public class ElevatorSubsystem {
-    private final CANSparkMax m_left = new CANSparkMax(Constants.DriveConstants.ELEV_LT, MotorType.kBrushless);
-    private final CANSparkMax m_right = new CANSparkMax(Constants.DriveConstants.ELEV_RT, MotorType.kBrushless);
-    private final RelativeEncoder m_encoder;
-    private final MotorControllerGroup m_rightMotors = new MotorControllerGroup(m_right);
-    private final MotorControllerGroup m_leftMotors = new MotorControllerGroup(m_left);
+    private final MotorIO m_left = new MotorIO(Constants.DriveConstants.ELEV_LT, MotorType.kBrushless);
+    private final MotorIO m_right = new MotorIO(Constants.DriveConstants.ELEV_RT, MotorType.kBrushless);
     private double elevRange = 70; // Difference between high and low encode values
     private double distanceToEncoderConversion = 0.75;  // 4 in = 3 enc
+    private static final double ZERO_EXTENSION_POSITION = 2.0; // Encoder position that extension inches are measured from
     double lowLimit = 0;
     boolean stopped = true;
     double currSpeed = 0;
     double speedLimitPoint = 2.0;
     double maxExtension = 0;
-
-    private final DifferentialDrive elev = new DifferentialDrive(m_leftMotors, m_rightMotors);
+    private boolean holding = false; // Smart Motion on the SparkMax
+    private double holdTarget = 0;
+    private final RobotState state = RobotState.getInstance();
 
     public ElevatorSubsystem() {
         m_left.setSmartCurrentLimit(35);
         m_right.setSmartCurrentLimit(35);
         m_left.setIdleMode(IdleMode.kBrake);
         m_left.setInverted(false);
-        m_right.setInverted(true);
         m_right.setIdleMode(IdleMode.kBrake);
-        m_encoder = m_left.getEncoder();
+        m_right.follow(m_left, true);
+        m_left.setClosedLoopGains(ElevatorConstants.kP, ElevatorConstants.kI, ElevatorConstants.kD, ElevatorConstants.kFF,
+            ElevatorConstants.kMinOutput, ElevatorConstants.kMaxOutput);
+        m_left.configureSmartMotion(ElevatorConstants.kMaxVelocityRpm, ElevatorConstants.kMaxAccelRpmPerSecond,
+            ElevatorConstants.kAllowedError);
+        state.register(Signal.ElevPos, m_left::readPosition);
+        state.register(Signal.ElevCurrent, () -> m_left.readCurrent()+m_right.readCurrent());
         SmartDashboard.putNumber(ArmController.ELEV_RANGE, elevRange);
         SmartDashboard.putNumber(ArmController.ELEV_MAX_EXTN, maxExtension);
         SmartDashboard.putNumber(ArmController.ELEV_LOW_LIMIT, lowLimit);
         SmartDashboard.putNumber(ArmController.ELEV_CONV_FACTOR, distanceToEncoderConversion);
+        Telemetry.getInstance().addNumber(ArmController.ELEV_MAX_EXTN, Rate.Hz10, 0.05, this::getMaxExtension);
     }
 
     public void init() {
-        lowLimit = SmartDashboard.getNumber(ArmController.ELEV_LOW_LIMIT, lowLimit);
-        elevRange = SmartDashboard.getNumber(ArmController.ELEV_RANGE, elevRange);
-        speedLimitPoint = SmartDashboard.getNumber(ArmController.SPEED_LIMIT_POINT, speedLimitPoint);
-        distanceToEncoderConversion = SmartDashboard.getNumber(ArmController.ELEV_CONV_FACTOR, distanceToEncoderConversion);
+        lowLimit = Tunables.ELEV_LOW_LIMIT.get();
+        elevRange = Tunables.ELEV_RANGE.get();
+        speedLimitPoint = Tunables.SPEED_LIMIT_POINT.get();
+        distanceToEncoderConversion = Tunables.ELEV_CONV_FACTOR.get();
+        holding = false;
     }
 
     public double getMaxExtension() {
@@ -52,7 +68,16 @@ public class ElevatorSubsystem {
     }
 
     public double getPosition() {
-        return m_encoder.getPosition()-lowLimit;
+        return state.get(Signal.ElevPos)-lowLimit;
+    }
+
+    // Inverse of getExtensionPosition
+    public double getExtensionInches() {
+        return extensionInches(state.get(Signal.ElevPos), distanceToEncoderConversion);
+    }
+
+    static double extensionInches(double position, double conversion) {
+        return (position-ZERO_EXTENSION_POSITION)/conversion;
     }
 
     public double getCurrentSpeed() {
@@ -64,91 +89,136 @@ public class ElevatorSubsystem {
     }
 
     public void setPosition(double position) {
-        lowLimit = SmartDashboard.getNumber(ArmController.ELEV_LOW_LIMIT, lowLimit);
-        elevRange = SmartDashboard.getNumber(ArmController.ELEV_RANGE, elevRange);
+        lowLimit = Tunables.ELEV_LOW_LIMIT.get();
+        elevRange = Tunables.ELEV_RANGE.get();
         if (elevRange>0 && (position<lowLimit || position>elevRange+lowLimit)) {
-            System.out.println("Elev pos:"+position+" outside limit");
+            RobotLogger.info("Elev pos:{} outside limit", position);
             return;
         }
-        m_encoder.setPosition(position); 
+        m_left.setEncoderPosition(position);
+        state.set(Signal.ElevPos, position);
     }
 
-    public void setMaxExtension(int maxExtensionInInches) {
+    public void setMaxExtension(double maxExtensionInInches) {
         double maxExtensionRange;
         if (maxExtensionInInches<=0) {
             maxExtensionRange = elevRange;
         } else {
-            maxExtensionRange = 2.0 + maxExtensionInInches * distanceToEncoderConversion;
+            maxExtensionRange = getExtensionPosition(maxExtensionInInches);
             if (elevRange>0 && maxExtensionRange>elevRange)
                 maxExtensionRange = elevRange;
         }
         if (this.maxExtension != maxExtensionRange) {
-            System.out.println("maxExtensionInInches:"+maxExtensionInInches+"...maxExtensionRange:"+maxExtension);
+            RobotLogger.debug("maxExtensionInInches:{}...maxExtensionRange:{}", maxExtensionInInches, maxExtension);
             this.maxExtension = maxExtensionRange;
         }
-        SmartDashboard.putNumber(ArmController.ELEV_MAX_EXTN, maxExtension);
+    }
+
+    // Encoder position at which the arm is the given length in inches
+    public double getExtensionPosition(double inches) {
+        return extensionPosition(inches, distanceToEncoderConversion);
+    }
+
+    static double extensionPosition(double inches, double conversion) {
+        return ZERO_EXTENSION_POSITION + inches * conversion;
+    }
+
+    public double getEncoderPosition() {
+        return state.get(Signal.ElevPos);
     }
 
     public void adjustArmExtension() {
-        double currentPos = (double) m_encoder.getPosition();
+        double currentPos = state.get(Signal.ElevPos);
         if (currentPos-maxExtension>1) {
-            System.out.println("Adjusting arm pos("+currentPos+") to maxExtension:"+ maxExtension);
+            RobotLogger.debug("Adjusting arm pos({}) to maxExtension:{}", currentPos, maxExtension);
             moveToTarget(maxExtension);
         }
     }
 
     public void extendArm(double speed) {
-        double currentPos = m_encoder.getPosition();
-        System.out.println("Extend Arm speed:"+speed+", currentPos:"+currentPos+", maxExtension:"+maxExtension);
+        double currentPos = state.get(Signal.ElevPos);
+        RobotLogger.debug("Extend Arm speed:{}, currentPos:{}, maxExtension:{}", speed, currentPos, maxExtension);
         if (maxExtension>0 && currentPos>=maxExtension) {        
             double amtLeft = maxExtension-currentPos;
              if (elevRange>0 && amtLeft<=0) {
-                System.out.println("Cant go further than "+maxExtension);
+                RobotLogger.debug("Cant go further than {}", maxExtension);
                 stop();
                 return;
             } else if (speed>0.25 && elevRange>0 && speedLimitPoint>0 && amtLeft<speedLimitPoint) {
                 double newSpeed = 0.25+(speed-0.25)*amtLeft/speedLimitPoint;
-                System.out.println("Near limit:"+maxExtension+". Restricting speed from "+speed+" to "+newSpeed);
+                RobotLogger.debug("Near limit:{}. Restricting speed from {} to {}", maxExtension, speed, newSpeed);
                 speed = newSpeed;
             }
         }
         stopped = false;
+        holding = false;
         currSpeed = speed;
-        elev.arcadeDrive(currSpeed, 0);
+        setOutput(currSpeed);
     }
 
-    // Returns true if target reached
+    // Target in encoder units. Returns true once the elevator is within tolerance of it.
     public boolean moveToTarget(double target) {
-        double curPos = m_encoder.getPosition();
-        int diff = (int) (curPos-target);
-        System.out.println("Moving elev to target:"+target+".. Diff:"+diff);
-        double speed = Math.abs(diff)>10?0.75:Math.abs(diff)>2?0.5:0.25;
-        if (diff>=1) { retractArm(-speed); return false; }
-        else if (diff<=-1) { extendArm(speed); return false; }
-        else { stop(); return true;}
+        return moveToTarget(target, ElevatorConstants.kMaxVelocityRpm, ElevatorConstants.kMaxAccelRpmPerSecond);
+    }
+
+    // With Smart Motion limits for this move
+    public boolean moveToTarget(double target, double maxRpm, double maxRpmPerSecond) {
+        m_left.configureSmartMotion(maxRpm, maxRpmPerSecond, ElevatorConstants.kAllowedError);
+        if (maxExtension>0) target = Math.min(target, maxExtension);
+        if (elevRange>0) target = Math.max(target, 0);
+        double curPos = state.get(Signal.ElevPos);
+        if (!holding || target!=holdTarget)
+            RobotLogger.debug("Moving elev to target:{}.. Diff:{}", target, curPos-target);
+        hold(target);
+        boolean reached = Math.abs(curPos-target)<ElevatorConstants.kTolerance;
+        stopped = reached;
+        // Smart Motion cruise speed per main tick, for the simulation
+        double step = maxRpm/60*0.02;
+        currSpeed = reached ? 0 : MathUtil.clamp(target-curPos, -step, step);
+        return reached;
+    }
+
+    private void hold(double target) {
+        holdTarget = target;
+        holding = true;
+        m_left.setSmartMotion(target);
     }
 
     public void retractArm(double speed) {
-        double currentPos = m_encoder.getPosition();
-        System.out.println("Retract Arm speed:"+speed+", currentPos:"+currentPos);
+        double currentPos = state.get(Signal.ElevPos);
+        RobotLogger.debug("Retract Arm speed:{}, currentPos:{}", speed, currentPos);
         if (elevRange>0 && currentPos<=0) {
-            System.out.println("Cant go lower than "+lowLimit);
+            RobotLogger.debug("Cant go lower than {}", lowLimit);
             stop();
             return;
         }
         stopped = false;
+        holding = false;
         currSpeed = speed;
-        elev.arcadeDrive(speed, 0);
+        setOutput(speed);
     }
 
     public void stop() {
+        if (holding) {
+            // Smart Motion settles where the elevator is now
+            if (!stopped) hold(state.get(Signal.ElevPos));
+            currSpeed = 0;
+            stopped = true;
+            return;
+        }
         if (!stopped) {
-            System.out.println("Stopping elevator......");
-            elevRange = SmartDashboard.getNumber(ArmController.ELEV_RANGE, elevRange); // refresh from dashboard just incase it has been updated
-            lowLimit = SmartDashboard.getNumber(ArmController.ELEV_LOW_LIMIT, lowLimit);
+            RobotLogger.info("Stopping elevator......");
+            elevRange = Tunables.ELEV_RANGE.get(); // refresh from dashboard just incase it has been updated
+            lowLimit = Tunables.ELEV_LOW_LIMIT.get();
             currSpeed = 0;
             stopped = true;
         }
-        elev.arcadeDrive(0, 0);
+        setOutput(0);
+    }
+
+    // Same output as the DifferentialDrive arcadeDrive(speed, 0) this replaced. The right motor follows.
+    private void setOutput(double speed) {
+        WheelSpeeds speeds = DifferentialDrive.arcadeDriveIK(MathUtil.applyDeadband(speed, 0.02), 0, true);
+        m_left.set(speeds.left);
     }
 }
\ No newline at end of file
@@ -4,14 +4,25 @@ import com.kauailabs.navx.frc.AHRS;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.SerialPort;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.subsystem.RobotState.Signal;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Rate;
 
 public class GyroSubsystem {
     //private ADXRS450_Gyro gyro1 = new ADXRS450_Gyro();
-    final AHRS ahrsGyro = new AHRS(SerialPort.Port.kUSB);
-    double simulatedYaw = 0, simulatedPitch=0;
+    // 200Hz to match the hardware thread, which integrates odometry from every frame
+    final AHRS ahrsGyro = new AHRS(SerialPort.Port.kUSB, AHRS.SerialDataType.kProcessedData, (byte) 200);
+    volatile double simulatedYaw = 0, simulatedPitch=0; // Read by the hardware thread
     static GyroSubsystem self; // singleton
     private AccelerometerSubsystem acc = AccelerometerSubsystem.getInstance();
+    private final RobotState state = RobotState.getInstance();
+    // Resets the AHRS on the hardware thread
+    private final DeviceIO resetIO = new DeviceIO() {
+        @Override
+        protected void apply() {
+            if (ahrsGyro!=null) ahrsGyro.reset();
+        }
+    };
 
     public static final String GYRO_PITCH="Gyro Pitch";
     public static final String GYRO_ROLL="Gyro Roll";
@@ -20,6 +31,12 @@ public class GyroSubsystem {
 
     private GyroSubsystem() {
         init();
+        state.register(Signal.GyroYaw, this::readYaw);
+        state.register(Signal.GyroPitch, this::readPitch);
+        state.register(Signal.GyroRoll, this::readRoll);
+        state.register(Signal.GyroAngle, this::readAngle);
+        Telemetry.getInstance().addNumber(GYRO_PITCH, Rate.Hz10, 0.1, this::getPitch);
+        Telemetry.getInstance().addNumber(GYRO_YAW, Rate.Hz10, 0.1, this::getYaw);
         self = this;
     }
 
@@ -28,23 +45,42 @@ public class GyroSubsystem {
     }
 
     public void init() {
-        if (ahrsGyro!=null) ahrsGyro.reset();
         simulatedYaw = 0;
+        resetIO.changed();
+        state.set(Signal.GyroYaw, 0);
+        state.set(Signal.GyroAngle, 0);
     }
 
+    // Values from this tick's RobotState snapshot
     public double getAngle() {
-        return ahrsGyro==null ? 0 : ahrsGyro.getAngle();
+        return state.get(Signal.GyroAngle);
     }
 
     public double getYaw() {
-        return simulatedYaw!=0 ? simulatedYaw: ahrsGyro==null ? 0 : ahrsGyro.getYaw();
+        return state.get(Signal.GyroYaw);
     }
 
     public double getRoll() {
-        return ahrsGyro==null ? 0 : ahrsGyro.getRoll();
+        return state.get(Signal.GyroRoll);
     }
 
     public double getPitch() {
+        return state.get(Signal.GyroPitch);
+    }
+
+    private double readAngle() {
+        return ahrsGyro==null ? 0 : ahrsGyro.getAngle();
+    }
+
+    private double readYaw() {
+        return simulatedYaw!=0 ? simulatedYaw: ahrsGyro==null ? 0 : ahrsGyro.getYaw();
+    }
+
+    private double readRoll() {
+        return ahrsGyro==null ? 0 : ahrsGyro.getRoll();
+    }
+
+    private double readPitch() {
         return simulatedPitch!=0 ? simulatedPitch : ahrsGyro==null ? 0 : ahrsGyro.getPitch();// - acc.getTilt();
     }
 
@@ -59,25 +95,26 @@ public class GyroSubsystem {
             if (simulatedYaw>180) simulatedYaw=-180+(simulatedYaw-180);
             if (simulatedYaw<=-180) simulatedYaw=180+(simulatedYaw+180);
         }
+        if (simulatedPitch!=0) state.set(Signal.GyroPitch, simulatedPitch);
+        if (simulatedYaw!=0) state.set(Signal.GyroYaw, simulatedYaw);
     }
 
+    // Same as AHRS.getRotation2d(), counter clockwise positive
     public Rotation2d getRotation2d() {
-        return ahrsGyro==null ? new Rotation2d() : ahrsGyro.getRotation2d();
+        return Rotation2d.fromDegrees(-getAngle());
     }
 
     public void reset() {
-        if (ahrsGyro!=null) ahrsGyro.reset();
         simulatedYaw = 0;
         simulatedPitch = 0;
+        resetIO.changed();
+        state.set(Signal.GyroYaw, 0);
+        state.set(Signal.GyroAngle, 0);
     }
 
     public void periodic(long tickCount) {
         //System.out.println("gyroP:"+gyro.getPitch()+", gyroR:"+gyro.getDegrees());
-        //if ((tickCount & 0x1111) == 0x1111) 
-        {
-            SmartDashboard.putNumber(GYRO_PITCH, getPitch());
-            SmartDashboard.putNumber(GYRO_YAW, getYaw());
-        }
+        // Pitch and yaw are published by Telemetry
         //SmartDashboard.putNumber(DriveController.GYRO_ANGLE, gyro.getAngle());
         //SmartDashboard.putNumber(DriveController.GYRO_ROLL, gyro.getRoll());
     }
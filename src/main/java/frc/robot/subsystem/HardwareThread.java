@@ -0,0 +1,194 @@
+package frc.robot.subsystem;
+
+import java.util.ArrayList;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.main.Tunables;
+import frc.robot.subsystem.RobotState.Signal;
+import frc.robot.util.RobotClock;
+import frc.robot.util.SeqLockFrame;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Rate;
+
+/**
+ * Owns all device access so the main loop never waits on CAN. Every 5ms it applies pending
+ * device configuration, reads every RobotState source into the sensor frame and writes the
+ * motor outputs from the latest setpoint frame. The main loop reads the sensor frame in
+ * RobotState.capture() and publishes its outputs with flush() at the end of each loop.
+ *
+ * <p>Sensor tasks, such as odometry, run on the hardware thread with each new sensor frame.
+ * If the main loop stops flushing for more than 100ms all motors are set to 0.
+ * Counts of CAN writes sent and suppressed by MotorIO are published.
+ * Devices and sources must be registered before start().
+ */
+public class HardwareThread {
+    /**
+     * Runs on the hardware thread with each new sensor frame. frame[0] is the last command
+     * generation applied before the read, then one value per Signal. Must not keep the array.
+     */
+    interface SensorTask {
+        void run(double[] frame);
+    }
+
+    private static final double PERIOD_SECONDS = 0.005;
+    private static final long STALE_SETPOINT_MICROS = 100_000;
+    public static final String KEEPALIVE_MS = "Motor Keepalive ms";
+
+    static private HardwareThread self;
+    private final ArrayList<DeviceIO> devices = new ArrayList<DeviceIO>(16);
+    private final ArrayList<MotorIO> motors = new ArrayList<MotorIO>(16);
+    private final DoubleSupplier[] sources = new DoubleSupplier[Signal.values().length];
+    private final ArrayList<SensorTask> sensorTasks = new ArrayList<SensorTask>(2);
+
+    // Sensor frame: [0] is the last command generation applied before the read, then one value per Signal
+    private final SeqLockFrame sensorFrame = new SeqLockFrame(1 + sources.length);
+    private final double[] sensorValues = new double[1 + sources.length];
+
+    // Setpoint frame: [0] is the FPGA time of the flush, then per motor its output, mode and feedforward
+    private static final int MOTOR_VALUES = 3;
+    private SeqLockFrame setpointFrame;
+    private double[] flushValues;
+    private double[] setpointValues;
+    private long appliedSetpointSequence = -1;
+    private boolean outputsZeroed = false;
+
+    private volatile long commandGeneration = 0;
+    private volatile long staleTrips = 0;
+    private volatile long overruns = 0;
+    volatile long outputWrites = 0, outputsSuppressed = 0, configWrites = 0; // Hardware thread
+    volatile long configSuppressed = 0; // Main thread
+    private Notifier notifier;
+
+    private HardwareThread() {
+        SmartDashboard.putNumber(KEEPALIVE_MS, 100);
+        self = this;
+    }
+
+    public static HardwareThread getInstance() {
+        return self==null?new HardwareThread():self;
+    }
+
+    void addDevice(DeviceIO device) {
+        checkNotStarted();
+        devices.add(device);
+    }
+
+    void addMotor(MotorIO motor) {
+        checkNotStarted();
+        motors.add(motor);
+    }
+
+    // Main thread, before start()
+    Iterable<MotorIO> getMotors() {
+        return motors;
+    }
+
+    void addSource(Signal signal, DoubleSupplier source) {
+        checkNotStarted();
+        sources[signal.ordinal()] = source;
+    }
+
+    void addSensorTask(SensorTask task) {
+        checkNotStarted();
+        sensorTasks.add(task);
+    }
+
+    private void checkNotStarted() {
+        if (notifier!=null) throw new IllegalStateException("Hardware thread already started");
+    }
+
+    // Main thread
+    void commandIssued(DeviceIO device) {
+        long generation = commandGeneration + 1;
+        device.requestedGeneration = generation;
+        commandGeneration = generation;
+    }
+
+    // Main thread
+    long getCommandGeneration() {
+        return commandGeneration;
+    }
+
+    /** Runs one cycle on the calling thread so the first snapshot is valid, then starts the thread. */
+    public void start() {
+        if (notifier!=null) return;
+        setpointFrame = new SeqLockFrame(1 + MOTOR_VALUES*motors.size());
+        flushValues = new double[1 + MOTOR_VALUES*motors.size()];
+        setpointValues = new double[1 + MOTOR_VALUES*motors.size()];
+        cycle();
+        Telemetry.getInstance().addNumber("HW Stale Setpoints", Rate.Hz1, 0, () -> staleTrips);
+        Telemetry.getInstance().addNumber("HW Overruns", Rate.Hz1, 0, () -> overruns);
+        Telemetry.getInstance().addNumber("CAN Output Writes", Rate.Hz1, 0, () -> outputWrites);
+        Telemetry.getInstance().addNumber("CAN Outputs Suppressed", Rate.Hz1, 0, () -> outputsSuppressed);
+        Telemetry.getInstance().addNumber("CAN Config Writes", Rate.Hz1, 0, () -> configWrites);
+        Telemetry.getInstance().addNumber("CAN Configs Suppressed", Rate.Hz1, 0, () -> configSuppressed);
+        notifier = new Notifier(this::cycle);
+        notifier.setName("HardwareIO");
+        notifier.startPeriodic(PERIOD_SECONDS);
+    }
+
+    // Main thread. Copies the latest sensor frame and returns the sequence of the frame.
+    long readSensors(double[] dest) {
+        return sensorFrame.read(dest);
+    }
+
+    /** Hands this loop's motor outputs to the hardware thread. Call at the end of every loop. */
+    public void flush() {
+        if (setpointFrame==null) return;
+        flushValues[0] = RobotClock.nowMicros();
+        for (int i = 0; i < motors.size(); i++) {
+            MotorIO motor = motors.get(i);
+            flushValues[1 + MOTOR_VALUES*i] = motor.output;
+            flushValues[2 + MOTOR_VALUES*i] = motor.mode;
+            flushValues[3 + MOTOR_VALUES*i] = motor.feedforwardVolts;
+        }
+        setpointFrame.write(flushValues);
+    }
+
+    private void cycle() {
+        long start = RobotClock.nowMicros();
+        long generation = commandGeneration;
+        for (int i = 0; i < devices.size(); i++) {
+            DeviceIO device = devices.get(i);
+            long requested = device.requestedGeneration;
+            if (requested!=device.appliedGeneration) {
+                device.apply();
+                device.appliedGeneration = requested;
+            }
+        }
+
+        sensorValues[0] = generation;
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i]!=null) sensorValues[i+1] = sources[i].getAsDouble();
+        }
+        sensorFrame.write(sensorValues);
+        for (int i = 0; i < sensorTasks.size(); i++)
+            sensorTasks.get(i).run(sensorValues);
+
+        writeOutputs();
+        if (RobotClock.nowMicros() - start > PERIOD_SECONDS * 1e6) overruns++;
+    }
+
+    // Runs every cycle so that unchanged outputs still get their keep-alive
+    private void writeOutputs() {
+        long sequence = setpointFrame.read(setpointValues);
+        long now = RobotClock.nowMicros();
+        long flushedAt = (long) setpointValues[0];
+        boolean stale = flushedAt==0 || now - flushedAt > STALE_SETPOINT_MICROS;
+        if (stale && !outputsZeroed && flushedAt!=0) staleTrips++;
+        outputsZeroed = stale;
+        boolean newFrame = sequence!=appliedSetpointSequence;
+        appliedSetpointSequence = sequence;
+        long keepAliveMicros = (long) (Tunables.MOTOR_KEEPALIVE.get() * 1000);
+        for (int i = 0; i < motors.size(); i++) {
+            // A stale frame drops position control too
+            double output = stale ? 0 : setpointValues[1 + MOTOR_VALUES*i];
+            int mode = stale ? MotorIO.DUTY_CYCLE : (int) setpointValues[2 + MOTOR_VALUES*i];
+            double feedforward = stale ? 0 : setpointValues[3 + MOTOR_VALUES*i];
+            if (motors.get(i).write(output, mode, feedforward, now, keepAliveMicros)) outputWrites++;
+            else if (newFrame) outputsSuppressed++;
+        }
+    }
+}
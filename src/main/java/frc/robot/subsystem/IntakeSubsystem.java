@@ -1,21 +1,22 @@
 package frc.robot.subsystem;
 
-import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 
 import frc.robot.interfaces.IntakeController.ItemType;
 import frc.robot.main.Constants;
+import frc.robot.subsystem.RobotState.Signal;
 
 public class IntakeSubsystem {
     static final int INTAKE_CURRENT_LIMIT_A = 30; // How many amps the intake can use while picking up
     static final int INTAKE_HOLD_CURRENT_LIMIT_A = 5; // How many amps the intake can use while holding
     static final double INTAKE_HOLD_POWER = 0.07; // Percent output for holding
-    private final CANSparkMax intake;
+    private final MotorIO intake;
 
     public IntakeSubsystem() {
-        intake = new CANSparkMax(Constants.DriveConstants.INTAKE, MotorType.kBrushed);
+        intake = new MotorIO(Constants.DriveConstants.INTAKE, MotorType.kBrushed);
         intake.setIdleMode(IdleMode.kCoast);
+        RobotState.getInstance().register(Signal.IntakeCurrent, intake::readCurrent);
     }
 
     public void grab(ItemType itemType, double speed) {
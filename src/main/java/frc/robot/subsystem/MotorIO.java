@@ -0,0 +1,299 @@
+package frc.robot.subsystem;
+
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.RelativeEncoder;
+import com.revrobotics.SparkMaxPIDController;
+import com.revrobotics.CANSparkMax.ControlType;
+import com.revrobotics.CANSparkMax.IdleMode;
+import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
+import com.revrobotics.SparkMaxPIDController.ArbFFUnits;
+
+import frc.robot.util.SeqLockFrame;
+
+/**
+ * Main loop side of a SparkMax. set() only records the output, which HardwareThread.flush()
+ * hands to the hardware thread at the end of the loop. Configuration setters record the desired
+ * value and the hardware thread applies it. The read methods talk to the device and must only
+ * be called on the hardware thread, which is what RobotState sources are.
+ *
+ * <p>setPosition() hands a position setpoint with an arbitrary feedforward in volts to the
+ * SparkMax PID instead, which then runs the loop on the device at 1kHz. setSmartMotion() does the
+ * same with Smart Motion, which also profiles the move on the device. Gains are set with
+ * setClosedLoopGains() and Smart Motion limits with configureSmartMotion(). setVelocity() runs the
+ * velocity loop on the device the same way. A motor set to
+ * follow another is left to the device and its own output is never sent.
+ *
+ * <p>Nothing is sent that the device already has. Configuration that does not change is dropped,
+ * and an unchanged output is only resent once per keep-alive interval.
+ */
+public class MotorIO extends DeviceIO {
+    private final HardwareThread hardware = HardwareThread.getInstance();
+    private final CANSparkMax device;
+    private final int deviceId;
+    private final RelativeEncoder encoder;
+    static final int DUTY_CYCLE = 0, POSITION = 1, SMART_MOTION = 2, VELOCITY = 3;
+    // Main thread. output is the position or velocity setpoint in the closed loop modes.
+    double output = 0;
+    int mode = DUTY_CYCLE;
+    double feedforwardVolts = 0;
+
+    // Desired configuration, written by the main thread
+    private volatile int currentLimit = -1; // -1 leaves the device default
+    private volatile IdleMode idleMode = null;
+    private volatile boolean inverted = false;
+    private volatile double compensationVolts = 0; // 0 disables voltage compensation
+    private double position;
+    private volatile int positionRequests = 0;
+    private final int[] framePeriods = new int[PeriodicFrame.values().length]; // ms, 0 leaves the default
+    private volatile int frameRequests = 0;
+    // Closed loop settings are handed over as whole frames, so a set is never applied half old and half new
+    private final double[] gains = new double[6]; // P, I, D, FF, min and max output. Main thread.
+    private final SeqLockFrame gainFrame = new SeqLockFrame(gains.length);
+    private final double[] smartMotion = new double[3]; // Max rpm, max rpm/s, allowed error. Main thread.
+    private final SeqLockFrame smartMotionFrame = new SeqLockFrame(smartMotion.length);
+    private volatile MotorIO leader = null;
+    private volatile boolean followInverted = false;
+
+    // Applied configuration, hardware thread only
+    private int appliedCurrentLimit = -1;
+    private IdleMode appliedIdleMode = null;
+    private boolean appliedInverted = false;
+    private double appliedCompensationVolts = 0;
+    private int appliedPositionRequests = 0;
+    private final int[] appliedFramePeriods = new int[PeriodicFrame.values().length];
+    private int appliedFrameRequests = 0;
+    private final double[] appliedGains = new double[gains.length];
+    private long appliedGainSequence = 0;
+    private final double[] appliedSmartMotion = new double[smartMotion.length];
+    private long appliedSmartMotionSequence = 0;
+    private MotorIO appliedLeader = null;
+    private SparkMaxPIDController pid;
+    private double writtenOutput = Double.NaN;
+    private int writtenMode = DUTY_CYCLE;
+    private double writtenFeedforward = 0;
+    private long writtenMicros = 0;
+
+    public MotorIO(int deviceId, MotorType type) {
+        this.deviceId = deviceId;
+        device = new CANSparkMax(deviceId, type);
+        encoder = type==MotorType.kBrushless ? device.getEncoder() : null;
+        hardware.addMotor(this);
+    }
+
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    public void set(double output) {
+        this.output = output;
+        mode = DUTY_CYCLE;
+    }
+
+    // Position in encoder rotations, held by the SparkMax PID
+    public void setPosition(double position, double feedforwardVolts) {
+        output = position;
+        mode = POSITION;
+        this.feedforwardVolts = feedforwardVolts;
+    }
+
+    public void stopMotor() {
+        output = 0;
+        mode = DUTY_CYCLE;
+    }
+
+    // Duty cycle, or 0 while holding a position
+    public double get() {
+        return mode==DUTY_CYCLE ? output : 0;
+    }
+
+    // Position in encoder rotations, reached with the Smart Motion profile
+    public void setSmartMotion(double position) {
+        output = position;
+        mode = SMART_MOTION;
+        feedforwardVolts = 0;
+    }
+
+    // Velocity in rpm, held by the SparkMax PID
+    public void setVelocity(double rpm, double feedforwardVolts) {
+        output = rpm;
+        mode = VELOCITY;
+        this.feedforwardVolts = feedforwardVolts;
+    }
+
+    public boolean isPositionMode() {
+        return mode==POSITION || mode==SMART_MOTION;
+    }
+
+    public void setClosedLoopGains(double p, double i, double d, double ff, double minOutput, double maxOutput) {
+        if (gains[0]==p && gains[1]==i && gains[2]==d && gains[3]==ff && gains[4]==minOutput && gains[5]==maxOutput) {
+            hardware.configSuppressed++;
+            return;
+        }
+        gains[0] = p;
+        gains[1] = i;
+        gains[2] = d;
+        gains[3] = ff;
+        gains[4] = minOutput;
+        gains[5] = maxOutput;
+        gainFrame.write(gains);
+        changed();
+    }
+
+    // Called on every step of a move, so it doesn't allocate
+    public void configureSmartMotion(double maxRpm, double maxRpmPerSecond, double allowedError) {
+        if (smartMotion[0]==maxRpm && smartMotion[1]==maxRpmPerSecond && smartMotion[2]==allowedError) {
+            hardware.configSuppressed++;
+            return;
+        }
+        smartMotion[0] = maxRpm;
+        smartMotion[1] = maxRpmPerSecond;
+        smartMotion[2] = allowedError;
+        smartMotionFrame.write(smartMotion);
+        changed();
+    }
+
+    // Inverted relative to the leader
+    public void follow(MotorIO leader, boolean inverted) {
+        if (this.leader==leader && followInverted==inverted) { hardware.configSuppressed++; return; }
+        followInverted = inverted;
+        this.leader = leader;
+        changed();
+    }
+
+    public void setSmartCurrentLimit(int amps) {
+        if (currentLimit==amps) { hardware.configSuppressed++; return; }
+        currentLimit = amps;
+        changed();
+    }
+
+    public void setIdleMode(IdleMode mode) {
+        if (idleMode==mode) { hardware.configSuppressed++; return; }
+        idleMode = mode;
+        changed();
+    }
+
+    public void setInverted(boolean inverted) {
+        if (this.inverted==inverted) { hardware.configSuppressed++; return; }
+        this.inverted = inverted;
+        changed();
+    }
+
+    // Scales duty cycle and closed loop output as if the battery were at this voltage. 0 disables.
+    public void setVoltageCompensation(double volts) {
+        if (compensationVolts==volts) { hardware.configSuppressed++; return; }
+        compensationVolts = volts;
+        changed();
+    }
+
+    public void setPeriodicFramePeriod(PeriodicFrame frame, int periodMs) {
+        if (framePeriods[frame.ordinal()]==periodMs) { hardware.configSuppressed++; return; }
+        framePeriods[frame.ordinal()] = periodMs;
+        frameRequests = frameRequests+1;
+        changed();
+    }
+
+    // Callers should also write the new position through to RobotState
+    public void setEncoderPosition(double position) {
+        this.position = position;
+        positionRequests = positionRequests+1;
+        changed();
+    }
+
+    // Hardware thread only
+    public double readPosition() {
+        return encoder==null ? 0 : encoder.getPosition();
+    }
+
+    // Hardware thread only
+    public double readVelocity() {
+        return encoder==null ? 0 : encoder.getVelocity();
+    }
+
+    // Hardware thread only
+    public double readCurrent() {
+        return device.getOutputCurrent();
+    }
+
+    /**
+     * Hardware thread only. Sends the output if it changed or the keep-alive interval has passed.
+     * @return true if it was sent
+     */
+    boolean write(double output, int mode, double feedforwardVolts, long nowMicros, long keepAliveMicros) {
+        if (appliedLeader!=null) return false;
+        if (output==writtenOutput && mode==writtenMode && feedforwardVolts==writtenFeedforward
+            && nowMicros-writtenMicros<keepAliveMicros) return false;
+        if (mode!=DUTY_CYCLE && pid!=null) {
+            ControlType type = mode==POSITION ? ControlType.kPosition
+                : mode==VELOCITY ? ControlType.kVelocity : ControlType.kSmartMotion;
+            pid.setReference(output, type, 0, feedforwardVolts, ArbFFUnits.kVoltage);
+        } else device.set(mode==DUTY_CYCLE ? output : 0);
+        writtenOutput = output;
+        writtenMode = mode;
+        writtenFeedforward = feedforwardVolts;
+        writtenMicros = nowMicros;
+        return true;
+    }
+
+    @Override
+    protected void apply() {
+        int requests = positionRequests;
+        if (requests!=appliedPositionRequests && encoder!=null) { encoder.setPosition(position); hardware.configWrites++; }
+        appliedPositionRequests = requests;
+
+        int limit = currentLimit;
+        if (limit>=0 && limit!=appliedCurrentLimit) { device.setSmartCurrentLimit(limit); hardware.configWrites++; }
+        appliedCurrentLimit = limit;
+
+        IdleMode mode = idleMode;
+        if (mode!=null && mode!=appliedIdleMode) { device.setIdleMode(mode); hardware.configWrites++; }
+        appliedIdleMode = mode;
+
+        boolean invert = inverted;
+        if (invert!=appliedInverted) { device.setInverted(invert); hardware.configWrites++; }
+        appliedInverted = invert;
+
+        double volts = compensationVolts;
+        if (volts!=appliedCompensationVolts) {
+            if (volts>0) device.enableVoltageCompensation(volts);
+            else device.disableVoltageCompensation();
+            hardware.configWrites++;
+        }
+        appliedCompensationVolts = volts;
+
+        int frames = frameRequests;
+        if (frames!=appliedFrameRequests) {
+            PeriodicFrame[] all = PeriodicFrame.values();
+            for (int i = 0; i < all.length; i++) {
+                int period = framePeriods[i];
+                if (period>0 && period!=appliedFramePeriods[i]) { device.setPeriodicFramePeriod(all[i], period); hardware.configWrites++; }
+                appliedFramePeriods[i] = period;
+            }
+        }
+        appliedFrameRequests = frames;
+
+        if (gainFrame.getSequence()!=appliedGainSequence) {
+            appliedGainSequence = gainFrame.read(appliedGains);
+            if (pid==null) pid = device.getPIDController();
+            pid.setP(appliedGains[0]);
+            pid.setI(appliedGains[1]);
+            pid.setD(appliedGains[2]);
+            pid.setFF(appliedGains[3]);
+            pid.setOutputRange(appliedGains[4], appliedGains[5]);
+            hardware.configWrites += 5;
+        }
+
+        if (smartMotionFrame.getSequence()!=appliedSmartMotionSequence) {
+            appliedSmartMotionSequence = smartMotionFrame.read(appliedSmartMotion);
+            if (pid==null) pid = device.getPIDController();
+            pid.setSmartMotionMaxVelocity(appliedSmartMotion[0], 0);
+            pid.setSmartMotionMaxAccel(appliedSmartMotion[1], 0);
+            pid.setSmartMotionAllowedClosedLoopError(appliedSmartMotion[2], 0);
+            hardware.configWrites += 3;
+        }
+
+        MotorIO lead = leader;
+        if (lead!=null && lead!=appliedLeader) { device.follow(lead.device, followInverted); hardware.configWrites++; }
+        appliedLeader = lead;
+    }
+}
@@ -0,0 +1,107 @@
+package frc.robot.subsystem;
+
+import frc.robot.main.Constants.DriveConstants;
+import frc.robot.subsystem.RobotState.Signal;
+import frc.robot.util.PoseHistory;
+import frc.robot.util.RobotClock;
+import frc.robot.util.SeqLockFrame;
+
+/**
+ * Integrates the field position on the hardware thread from every sensor frame, so at 200Hz,
+ * using the drive encoders and gyro yaw. The pose is published through a SeqLockFrame and the
+ * main loop reads a complete pose without waiting. An encoder or gyro reset shows up as a jump in
+ * a frame read after a device command and doesn't move the pose. The last 1.5 seconds of poses
+ * are kept in a PoseHistory for latency compensation.
+ *
+ * <p>Pose values are x and y in meters and heading in radians, counter clockwise positive.
+ */
+class PoseTracker implements HardwareThread.SensorTask {
+    private static final double MAX_STEP_METERS = 0.1; // 20 m/s over one frame
+    private static final double MAX_TURN_DEGREES = 10;
+    private static final int HISTORY_SIZE = 300;
+    static final int X = 0, Y = 1, HEADING = 2, MICROS = 3;
+    private static final int RESET = 4;
+    static final int SIZE = 5;
+
+    private final SeqLockFrame poseFrame = new SeqLockFrame(SIZE);
+    private final SeqLockFrame resetFrame = new SeqLockFrame(3);
+    private final PoseHistory history = new PoseHistory(HISTORY_SIZE);
+    // Hardware thread
+    private final double[] pose = new double[SIZE];
+    private final double[] reset = new double[3];
+    private long appliedReset = 0;
+    private long lastGeneration = -1;
+    private double lastLeft, lastRight, lastYaw;
+    // Main thread
+    private final double[] requested = new double[3];
+
+    PoseTracker() {
+        HardwareThread.getInstance().addSensorTask(this);
+    }
+
+    @Override
+    public void run(double[] frame) {
+        long generation = (long) frame[0];
+        double left = frame[Signal.DriveLeftPos.ordinal()+1] * DriveConstants.kMetersPerEncoderUnit;
+        double right = frame[Signal.DriveRightPos.ordinal()+1] * DriveConstants.kMetersPerEncoderUnit;
+        double yaw = frame[Signal.GyroYaw.ordinal()+1];
+        double leftStep = left-lastLeft, rightStep = right-lastRight;
+        double turn = Math.IEEEremainder(yaw-lastYaw, 360);
+        if (lastGeneration < 0) {
+            leftStep = rightStep = turn = 0;
+        } else if (generation != lastGeneration) {
+            if (Math.abs(leftStep) > MAX_STEP_METERS || Math.abs(rightStep) > MAX_STEP_METERS) leftStep = rightStep = 0;
+            if (Math.abs(turn) > MAX_TURN_DEGREES) turn = 0;
+        }
+        lastGeneration = generation;
+        lastLeft = left;
+        lastRight = right;
+        lastYaw = yaw;
+
+        if (resetFrame.getSequence() != appliedReset) {
+            appliedReset = resetFrame.read(reset);
+            pose[X] = reset[X];
+            pose[Y] = reset[Y];
+            pose[HEADING] = reset[HEADING];
+        } else {
+            // Yaw is clockwise positive. Moves along the mean heading of the frame.
+            double heading = pose[HEADING] - Math.toRadians(turn);
+            double distance = (leftStep+rightStep)/2;
+            double mid = (pose[HEADING]+heading)/2;
+            pose[X] += distance*Math.cos(mid);
+            pose[Y] += distance*Math.sin(mid);
+            pose[HEADING] = heading;
+        }
+        long now = RobotClock.nowMicros();
+        pose[MICROS] = now;
+        pose[RESET] = appliedReset;
+        poseFrame.write(pose);
+        history.add(now, pose[X], pose[Y], pose[HEADING]);
+    }
+
+    // Safe to read from any thread
+    PoseHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Main thread. Copies the latest pose into dest, or the last reset until the hardware thread
+     * has applied it.
+     */
+    void read(double[] dest) {
+        poseFrame.read(dest);
+        if ((long) dest[RESET] != resetFrame.getSequence()) {
+            dest[X] = requested[X];
+            dest[Y] = requested[Y];
+            dest[HEADING] = requested[HEADING];
+        }
+    }
+
+    // Main thread
+    void reset(double x, double y, double heading) {
+        requested[X] = x;
+        requested[Y] = y;
+        requested[HEADING] = heading;
+        resetFrame.write(requested);
+    }
+}
@@ -1,99 +1,167 @@
 package frc.robot.subsystem;
 
-import com.revrobotics.CANSparkMax;
-import com.revrobotics.RelativeEncoder;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
-import com.revrobotics.SparkMaxPIDController;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.ArmFeedforward;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
-import edu.wpi.first.math.trajectory.TrapezoidProfile.State;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.interfaces.ArmController;
 import frc.robot.main.Constants;
-
+import frc.robot.main.Tunables;
+import frc.robot.main.Constants.LiftConstants;
+import frc.robot.subsystem.RobotState.Signal;
+import frc.robot.util.RobotClock;
+import frc.robot.util.RobotLogger;
+
+/**
+ * Arm lift driven by the pulley motor with a counter pulley. raiseArm and lowerArm drive it
+ * directly. moveToTarget follows a trapezoid profile to the target, sending each setpoint with
+ * gravity feedforward to the pulley SparkMax, whose PID tracks it at 1kHz. The target is held
+ * there until the lift is driven directly again.
+ */
 public class PulleyLiftSubsystem {
-    private final CANSparkMax pulley = new CANSparkMax(Constants.DriveConstants.PULLEY, MotorType.kBrushless);
-    private final CANSparkMax counterPulley = new CANSparkMax(Constants.DriveConstants.COUNTER_PULLEY, MotorType.kBrushless);
+    private final MotorIO pulley = new MotorIO(Constants.DriveConstants.PULLEY, MotorType.kBrushless);
+    private final MotorIO counterPulley = new MotorIO(Constants.DriveConstants.COUNTER_PULLEY, MotorType.kBrushless);
     private boolean stopped = true;
     private final int intakeAmps = 35;
-    private RelativeEncoder m_encoder;
-    private SparkMaxPIDController m_pidController;
     private double currSpeed = 0;
     private double stoppedPos;
     private double liftRange = 0; // Difference between high and low encode values
-
-    private TrapezoidProfile m_profile;
-    private Timer m_timer;
-    private double targetPos;
-    TrapezoidProfile.Constraints kArmMotionConstraint = new TrapezoidProfile.Constraints(2.0, 2.0);
     private double lowLimit = 0;
+    private final RobotState state = RobotState.getInstance();
 
     private final double COUNTER_PULLEY_SPEED_RATIO_DOWN=0.3;
     private final double COUNTER_PULLEY_SPEED_RATIO_UP = 0.75;
 
+    private final ArmFeedforward feedforward = new ArmFeedforward(LiftConstants.ksVolts, LiftConstants.kgVolts,
+        LiftConstants.kvVoltSecondsPerRotation);
+    private TrapezoidProfile profile;
+    private TrapezoidProfile.State setpoint = new TrapezoidProfile.State();
+    private double profileGoal = Double.NaN;
+    private long profileStartMicros;
+    private boolean holding = false; // Position control on the SparkMax
+
     public PulleyLiftSubsystem() {
         pulley.setIdleMode(IdleMode.kBrake);
         pulley.setSmartCurrentLimit(intakeAmps);
-        m_encoder = pulley.getEncoder();
-        m_pidController = pulley.getPIDController();
-        m_pidController.setFeedbackDevice(m_encoder);
-/*             
-        m_pidController.setP(0.6);
-        m_pidController.setI(0.0);
-        m_pidController.setD(0.0);
-*/
-        stoppedPos = m_encoder.getPosition();
+        pulley.setClosedLoopGains(LiftConstants.kP, LiftConstants.kI, LiftConstants.kD, 0,
+            LiftConstants.kMinOutput, LiftConstants.kMaxOutput);
+        state.register(Signal.LiftPos, pulley::readPosition);
+        state.register(Signal.LiftCurrent, () -> pulley.readCurrent()+counterPulley.readCurrent());
+        stoppedPos = state.get(Signal.LiftPos);
         SmartDashboard.putNumber(ArmController.LIFT_RANGE, liftRange);
         SmartDashboard.putNumber(ArmController.LIFT_LOW_LIMIT, lowLimit);
     }
 
     public void init() {
-        lowLimit = SmartDashboard.getNumber(ArmController.LIFT_LOW_LIMIT, lowLimit);
-        liftRange = SmartDashboard.getNumber(ArmController.LIFT_RANGE, liftRange);
+        lowLimit = Tunables.LIFT_LOW_LIMIT.get();
+        liftRange = Tunables.LIFT_RANGE.get();
+        holding = false;
+        profileGoal = Double.NaN;
+        currSpeed = 0;
+        stopped = true;
+        boolean wasPositionMode = pulley.isPositionMode();
+        pulley.stopMotor();
+        counterPulley.stopMotor();
+        // The SparkMax would hold its old setpoint in the re-seeded encoder frame, so the stop is
+        // flushed now, which puts it ahead of the re-seed on the hardware thread
+        if (wasPositionMode) HardwareThread.getInstance().flush();
 
         double pitch = GyroSubsystem.getInstance().getPitch();
         setPositionByPitch(pitch);
     }
 
+    /**
+     * Seeds the encoder from the gyro. Pitch is from vertical and raising the lift turns the
+     * encoder up while the pitch goes down, so 90 degrees is the low limit and 0 the top of the range.
+     */
     public void setPositionByPitch(double pitch) {
         if (pitch>0 && liftRange>0) {
-            setPosition(liftRange*pitch/90);
+            setPosition(positionByPitch(pitch, lowLimit, liftRange));
         }
     }
 
+    static double positionByPitch(double pitch, double lowLimit, double liftRange) {
+        return lowLimit + liftRange*(90-pitch)/90;
+    }
+
+    // Gyro pitch change per encoder rotation, matching setPositionByPitch. NaN until the lift range is set.
+    public double getDegreesPerRotation() {
+        return degreesPerRotation(liftRange);
+    }
+
+    // Negative, as the pitch goes down while the lift goes up
+    public static double degreesPerRotation(double liftRange) {
+        return liftRange>0 ? -90/liftRange : Double.NaN;
+    }
+
     public void setPosition(double position) {
-        m_encoder.setPosition(position);
+        pulley.setEncoderPosition(position);
+        state.set(Signal.LiftPos, position);
     }
 
     public double getPosition() {
-        return m_encoder.getPosition();
+        return state.get(Signal.LiftPos);
     }
 
-    // Returns true if target reached
+    // Returns true once the profile has ended within tolerance of the target
     public boolean moveToTarget(double target) {
-        target += SmartDashboard.getNumber(ArmController.LIFT_LOW_LIMIT, 0);
-        double curPos = m_encoder.getPosition();
-        double diff = curPos-target;
-        System.out.println("Moving lift to target:"+target+".. Diff:"+diff);
-        double speed = Math.abs(diff)>10?0.5:Math.abs(diff)>2?0.25:0.1;
-        if (diff>.5) { lowerArm(-speed); return false; }
-        else if (diff<-0.5) { raiseArm(speed); return false; }
-        else {stop(); return true;}
+        return moveToPosition(getTargetPosition(target), LiftConstants.kMaxVelocity, LiftConstants.kMaxAcceleration);
+    }
+
+    // Encoder position of a target, which is from the low limit
+    public double getTargetPosition(double target) {
+        target += Tunables.LIFT_LOW_LIMIT.get();
+        return liftRange>0 ? MathUtil.clamp(target, lowLimit, lowLimit+liftRange) : target;
+    }
+
+    /**
+     * moveToTarget for an encoder position with profile limits in rotations per second. The
+     * limits are only read when the target changes.
+     */
+    public boolean moveToPosition(double target, double maxVelocity, double maxAcceleration) {
+        double curPos = state.get(Signal.LiftPos);
+        long now = RobotClock.nowMicros();
+        if (target!=profileGoal) {
+            // Carries on from the setpoint being held, so a new target doesn't jerk the lift
+            TrapezoidProfile.State start = holding ? setpoint : new TrapezoidProfile.State(curPos, 0);
+            profile = new TrapezoidProfile(new TrapezoidProfile.Constraints(maxVelocity, maxAcceleration),
+                new TrapezoidProfile.State(target, 0), start);
+            profileGoal = target;
+            profileStartMicros = now;
+            RobotLogger.debug("Moving lift to target:{}.. Diff:{}", target, curPos-target);
+        }
+        double seconds = (now-profileStartMicros)/1e6;
+        setpoint = profile.calculate(seconds);
+        hold(setpoint.position, setpoint.velocity);
+        return profile.isFinished(seconds) && Math.abs(curPos-target)<LiftConstants.kTolerance;
+    }
+
+    private void hold(double position, double velocity) {
+        // Pitch is from vertical and ArmFeedforward takes the angle from level
+        double angle = Math.PI/2-Math.toRadians(GyroSubsystem.getInstance().getPitch());
+        pulley.setPosition(position, feedforward.calculate(angle, velocity));
+        double ratio = velocity>0 ? COUNTER_PULLEY_SPEED_RATIO_UP : COUNTER_PULLEY_SPEED_RATIO_DOWN;
+        counterPulley.set(ratio*LiftConstants.kMaxOutput*velocity/LiftConstants.kMaxVelocity);
+        currSpeed = velocity*0.02; // Per main tick, for the simulation
+        holding = true;
+        stopped = velocity==0;
     }
 
     public void raiseArm(double speed) {
-        lowLimit = SmartDashboard.getNumber(ArmController.LIFT_LOW_LIMIT, 0);
+        lowLimit = Tunables.LIFT_LOW_LIMIT.get();
         double highLimit = lowLimit+liftRange;
-        if (liftRange>0 && m_encoder.getPosition()>highLimit) {
-            System.out.println("Can't go higher than "+highLimit);
+        if (liftRange>0 && state.get(Signal.LiftPos)>highLimit) {
+            RobotLogger.debug("Can't go higher than {}", highLimit);
             stop();
             return;
         }
-        System.out.println("raiseArm:"+speed);
+        RobotLogger.debug("raiseArm:{}", speed);
         stopped = false;
+        holding = false;
+        profileGoal = Double.NaN;
         pulley.set(speed);
         currSpeed = speed;
         //pulley.setSmartCurrentLimit(intakeAmps);
@@ -105,13 +173,15 @@ public class PulleyLiftSubsystem {
     }
 
     public void lowerArm(double speed) {
-        if (liftRange>0 && m_encoder.getPosition()<lowLimit) {
-            System.out.println("Cant go lower!!!");
+        if (liftRange>0 && state.get(Signal.LiftPos)<lowLimit) {
+            RobotLogger.debug("Cant go lower!!!");
             stop();
             return;
         }
-        System.out.println("lowerArm:"+speed);
+        RobotLogger.debug("lowerArm:{}", speed);
         stopped = false;
+        holding = false;
+        profileGoal = Double.NaN;
         pulley.set(speed);
         currSpeed = speed;
         //pulley.setSmartCurrentLimit(intakeAmps);
@@ -126,35 +196,20 @@ public class PulleyLiftSubsystem {
         return stopped;
     }
 
-    private void updateMotionProfile(double targetPos) {
-        if (this.targetPos == targetPos)
+    public void stop() {
+        double currentPos = state.get(Signal.LiftPos);
+        if (holding) {
+            // Stays where the profile has got to
+            if (setpoint.velocity!=0) {
+                profileGoal = setpoint.position;
+                setpoint = new TrapezoidProfile.State(setpoint.position, 0);
+            }
+            hold(setpoint.position, 0);
             return;
-        this.targetPos = targetPos;
-        TrapezoidProfile.State state = new TrapezoidProfile.State(m_encoder.getPosition(), m_encoder.getVelocity());
-        TrapezoidProfile.State goal = new TrapezoidProfile.State(targetPos, 0.0);
-
-        m_profile = new TrapezoidProfile(kArmMotionConstraint, goal, state);
-        m_timer.reset();
-    }
-
-    private void adjustArmToTarget() {
-        double elapsedTime = m_timer.get();
-        State targetState;
-        if (m_profile.isFinished(elapsedTime)) {
-          targetState = new TrapezoidProfile.State(targetPos, 0.0);
-        } else {
-          targetState = m_profile.calculate(elapsedTime);
         }
-        ArmFeedforward aff = new ArmFeedforward(0.0, 0.4, 4.0, 0.0);  
-        double feedforward = aff.calculate(m_encoder.getPosition()-(Math.PI/6), targetState.velocity);
-        m_pidController.setReference(targetState.position, CANSparkMax.ControlType.kPosition, 0, feedforward);
-    }
-
-    public void stop() {
-        double currentPos = m_encoder.getPosition();
         if (!stopped) {
             currSpeed *= 0.5;
-            System.out.println("Slowing lift motor..speed:"+currSpeed);
+            RobotLogger.debug("Slowing lift motor..speed:{}", currSpeed);
             pulley.set(currSpeed);
             stoppedPos = currentPos;
             if (currSpeed<0.05 && currSpeed>-0.05) {
@@ -162,10 +217,14 @@ public class PulleyLiftSubsystem {
                 pulley.stopMotor();
                 //pulley.set(0.01);
                 stopped = true;
-                System.out.println("Stopped Lift at pos:"+stoppedPos);
+                RobotLogger.info("Stopped Lift at pos:{}", stoppedPos);
                 //double feedforward = 0;
                 //m_pidController.setReference(stoppedPos, CANSparkMax.ControlType.kPosition, 0, feedforward);
             }
+        } else if (pulley.isPositionMode()) {
+            // Not holding, so no setpoint may be left for the keep-alive to resend
+            pulley.stopMotor();
+            counterPulley.stopMotor();
         } /*else {
             double diff = currentPos-stoppedPos;
             double speed = Math.abs(diff)>10?0.75:Math.abs(diff)>2?0.25:0.05;
@@ -0,0 +1,81 @@
+package frc.robot.subsystem;
+
+import java.util.function.DoubleSupplier;
+
+import frc.robot.util.RobotClock;
+
+/**
+ * Sensor values for the current tick. Subsystems register a source for each signal they own.
+ * The hardware thread reads the sources and capture() copies its latest sensor frame once at the
+ * start of the loop, before any mode or periodic code runs. Everything else reads the snapshot,
+ * so all decisions in a tick see the same values and none of them touch the hardware.
+ *
+ * <p>Code that resets or sets a sensor writes the new value through with set(). Captures keep
+ * that value until the hardware thread has applied the command and then for one status frame
+ * period more, since a SparkMax keeps reporting the old position until its next status frame.
+ */
+public class RobotState {
+    public enum Signal {
+        DriveLeftPos, DriveRightPos, DriveLeftVel, DriveRightVel, DriveLeftCurrent, DriveRightCurrent,
+        ElevPos, ElevCurrent, LiftPos, LiftCurrent, IntakeCurrent,
+        GyroYaw, GyroPitch, GyroRoll, GyroAngle,
+        AccelX, AccelY, AccelZ,
+        BatteryVoltage
+    }
+
+    // Longest status frame period of a signal that is set, plus a hardware thread period
+    private static final long HOLD_AFTER_APPLIED_MICROS = 25_000;
+
+    static private RobotState self;
+    private final HardwareThread hardware = HardwareThread.getInstance();
+    private final Signal[] signals = Signal.values();
+    private final double[] values = new double[signals.length];
+    private final double[] frame = new double[signals.length + 1];
+    private final long[] pendingGeneration = new long[signals.length]; // 0 once applied
+    private final long[] holdUntilMicros = new long[signals.length];
+    private long captureMicros = 0;
+
+    private RobotState() {
+        self = this;
+    }
+
+    public static RobotState getInstance() {
+        return self==null?new RobotState():self;
+    }
+
+    // The source is called on the hardware thread
+    public void register(Signal signal, DoubleSupplier source) {
+        hardware.addSource(signal, source);
+    }
+
+    // Call once per tick before any robot code runs
+    public void capture() {
+        hardware.readSensors(frame);
+        long applied = (long) frame[0];
+        long now = RobotClock.nowMicros();
+        for (int i = 0; i < values.length; i++) {
+            if (pendingGeneration[i]!=0) {
+                if (applied<pendingGeneration[i]) continue;
+                pendingGeneration[i] = 0;
+                holdUntilMicros[i] = now + HOLD_AFTER_APPLIED_MICROS;
+            }
+            if (now>=holdUntilMicros[i]) values[i] = frame[i+1];
+        }
+        captureMicros = now;
+    }
+
+    // Call after issuing the command that changes the sensor
+    public void set(Signal signal, double value) {
+        values[signal.ordinal()] = value;
+        pendingGeneration[signal.ordinal()] = hardware.getCommandGeneration();
+    }
+
+    public double get(Signal signal) {
+        return values[signal.ordinal()];
+    }
+
+    // FPGA time of the last capture
+    public long getCaptureMicros() {
+        return captureMicros;
+    }
+}
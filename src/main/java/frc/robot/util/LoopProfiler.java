@@ -0,0 +1,111 @@
+package frc.robot.util;
+
+import frc.robot.util.Telemetry.Rate;
+
+/**
+ * Records how long each stage of the robot loop takes and publishes p50/p99/max per stage once a sec.
+ * Timings go into fixed size log-linear histograms (about 12% resolution, up to ~260ms),
+ * so nothing is allocated after construction. Only call from the main robot thread.
+ */
+public class LoopProfiler {
+    public enum Stage {
+        SensorCapture("Sensor Capture"), RobotPeriodic("Robot Periodic"), Scheduler("Scheduler"), ContainerPeriodic("Container Periodic"),
+        ArmPeriodic("Arm Periodic"), DrivePeriodic("Drive Periodic"), GyroPeriodic("Gyro Periodic"), Publish("Telemetry"),
+        TeleOp("TeleOp"), TeleDrive("TeleOp Drive"), TeleArm("TeleOp Arm"), TeleIntake("TeleOp Intake"),
+        AutonomousOp("Auton Op"), AutonNextAction("Auton Next Action"), AutonPerform("Auton Perform"),
+        Calibrate("Calibrate");
+
+        private final String p50Key;
+        private final String p99Key;
+        private final String maxKey;
+
+        Stage(String name) {
+            p50Key = "Loop " + name + " p50";
+            p99Key = "Loop " + name + " p99";
+            maxKey = "Loop " + name + " max";
+        }
+    }
+
+    private static final int LINEAR_BUCKETS = 16; // 0-15us one bucket per micro sec
+    private static final int SUB_BUCKETS = 8; // then 8 buckets per power of 2
+    private static final int BUCKETS = 128;
+
+    static private LoopProfiler self;
+    private final long[][] counts = new long[Stage.values().length][BUCKETS];
+    private final long[] totals = new long[Stage.values().length];
+    private final long[] maxNanos = new long[Stage.values().length];
+    private final Stage[] stages = Stage.values();
+
+    private LoopProfiler() {
+        Telemetry telemetry = Telemetry.getInstance();
+        for (Stage stage : stages) {
+            final int i = stage.ordinal();
+            telemetry.addNumber(stage.p50Key, Rate.Hz1, 1, () -> percentileMicros(i, 0.50));
+            telemetry.addNumber(stage.p99Key, Rate.Hz1, 1, () -> percentileMicros(i, 0.99));
+            telemetry.addNumber(stage.maxKey, Rate.Hz1, 1, () -> maxNanos[i] / 1000.0);
+        }
+        self = this;
+    }
+
+    public static LoopProfiler getInstance() {
+        return self==null?new LoopProfiler():self;
+    }
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records time elapsed since startNanos against the stage.
+     * @return current time so that consecutive stages can be chained
+     */
+    public long record(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        long elapsed = now - startNanos;
+        int i = stage.ordinal();
+        counts[i][bucketOf(elapsed / 1000)]++;
+        totals[i]++;
+        if (elapsed > maxNanos[i]) maxNanos[i] = elapsed;
+        return now;
+    }
+
+    // Histograms are cumulative so reset on every mode change
+    public void reset() {
+        for (int i = 0; i < stages.length; i++) {
+            long[] c = counts[i];
+            for (int b = 0; b < BUCKETS; b++) c[b] = 0;
+            totals[i] = 0;
+            maxNanos[i] = 0;
+        }
+    }
+
+    private double percentileMicros(int stage, double percentile) {
+        if (totals[stage] == 0) return 0;
+        long rank = (long) Math.ceil(totals[stage] * percentile);
+        long seen = 0;
+        long[] c = counts[stage];
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += c[b];
+            if (seen >= rank) return bucketMicros(b);
+        }
+        return maxNanos[stage] / 1000.0;
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < LINEAR_BUCKETS) return micros < 0 ? 0 : (int) micros;
+        int msb = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = msb - 3;
+        int mantissa = (int) (micros >> shift); // always 8-15
+        int bucket = LINEAR_BUCKETS + (msb - 4) * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+        return bucket < BUCKETS ? bucket : BUCKETS - 1;
+    }
+
+    // Mid point of the bucket
+    private static double bucketMicros(int bucket) {
+        if (bucket < LINEAR_BUCKETS) return bucket;
+        int k = bucket - LINEAR_BUCKETS;
+        int shift = 1 + k / SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + k % SUB_BUCKETS) << shift;
+        return lower + (1 << shift) / 2.0;
+    }
+}
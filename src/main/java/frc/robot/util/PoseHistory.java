@@ -0,0 +1,82 @@
+package frc.robot.util;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fixed size ring of timestamped poses kept in primitive arrays, for finding where the robot was
+ * at a past time. One thread adds poses in time order while others look them up without locks.
+ * A lookup binary searches the ring, interpolates between the two samples around the time and
+ * retries if the writer overwrote them meanwhile. Nothing is allocated after construction.
+ */
+public class PoseHistory {
+    private final int capacity;
+    private final long[] micros;
+    private final double[] x, y, heading;
+    private volatile long written = 0; // Samples ever added. The newest is at index written-1.
+
+    public PoseHistory(int capacity) {
+        this.capacity = capacity;
+        micros = new long[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        heading = new double[capacity];
+    }
+
+    // Only one thread may add. Heading in radians.
+    public void add(long timeMicros, double poseX, double poseY, double poseHeading) {
+        long n = written;
+        int slot = (int) (n % capacity);
+        micros[slot] = timeMicros;
+        x[slot] = poseX;
+        y[slot] = poseY;
+        heading[slot] = poseHeading;
+        VarHandle.storeStoreFence(); // the sample must be written before it is counted
+        written = n + 1;
+    }
+
+    /**
+     * Copies the pose at timeMicros into dest as x, y, heading, interpolated between the samples
+     * around it. Times after the newest sample get the newest pose.
+     * @return false, leaving dest alone, when the time is older than the oldest sample
+     */
+    public boolean sample(long timeMicros, double[] dest) {
+        while (true) {
+            long n = written;
+            if (n == 0) return false;
+            long oldest = Math.max(0, n - capacity + 1); // The writer may be overwriting n - capacity
+            if (micros[slot(oldest)] > timeMicros) {
+                VarHandle.loadLoadFence();
+                if (written - capacity < oldest) return false;
+                continue;
+            }
+            // Newest sample at or before the time
+            long lo = oldest, hi = n - 1;
+            while (lo < hi) {
+                long mid = (lo + hi + 1) >>> 1;
+                if (micros[slot(mid)] <= timeMicros) lo = mid;
+                else hi = mid - 1;
+            }
+            int a = slot(lo), b = slot(Math.min(lo + 1, n - 1));
+            long t0 = micros[a], t1 = micros[b];
+            double f = t1 > t0 ? Math.min(1.0, (double) (timeMicros - t0) / (t1 - t0)) : 0;
+            double sx = x[a] + (x[b] - x[a]) * f;
+            double sy = y[a] + (y[b] - y[a]) * f;
+            double sh = heading[a] + Math.IEEEremainder(heading[b] - heading[a], 2 * Math.PI) * f;
+            VarHandle.loadLoadFence(); // samples must be read before checking they were not overwritten
+            if (written - capacity < lo) {
+                dest[0] = sx;
+                dest[1] = sy;
+                dest[2] = sh;
+                return true;
+            }
+        }
+    }
+
+    private int slot(long index) {
+        return (int) (index % capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,19 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Monotonic time source for all timing logic. Uses the FPGA timestamp, which unlike
+ * java.util.Date does not jump when the roboRIO clock gets synced and does not allocate.
+ */
+public final class RobotClock {
+    private RobotClock() {}
+
+    public static long nowMicros() {
+        return RobotController.getFPGATime();
+    }
+
+    public static double nowSeconds() {
+        return RobotController.getFPGATime() / 1e6;
+    }
+}
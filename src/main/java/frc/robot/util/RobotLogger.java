@@ -0,0 +1,201 @@
+package frc.robot.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Replacement for System.out.println in the robot loop. Callers only copy the message literal
+ * and its arguments into a preallocated ring buffer; formatting and console output happen on a
+ * low priority background thread. "{}" in the message is replaced by the next argument.
+ *
+ * <p>info() always logs. debug() is meant for per tick messages and logs each call site (the
+ * message literal) at most once per DEBUG_INTERVAL_NANOS, reporting how many were suppressed.
+ * When the buffer is full, messages are dropped instead of blocking the caller. Both can be
+ * called from any thread.
+ */
+public class RobotLogger {
+    private static final int CAPACITY = 1024; // Must be power of 2
+    private static final int MASK = CAPACITY - 1;
+    private static final int MAX_ARGS = 4;
+    private static final int SITES = 256; // Must be power of 2
+    private static final long DEBUG_INTERVAL_NANOS = 500_000_000L;
+    private static final long DRAIN_SLEEP_MILLIS = 20;
+
+    private static final RobotLogger self = new RobotLogger();
+    private final Entry[] ring = new Entry[CAPACITY];
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long head = 0; // Only touched by the drain thread
+    private final StringBuilder line = new StringBuilder(256);
+
+    // debug() rate limiting state keyed by identity of the message literal. Atomic, as the
+    // hardware thread and control loops log too.
+    private final AtomicReferenceArray<String> siteKeys = new AtomicReferenceArray<>(SITES);
+    private final AtomicLongArray siteLastNanos = new AtomicLongArray(SITES);
+    private final AtomicIntegerArray siteSuppressed = new AtomicIntegerArray(SITES);
+
+    private static final class Entry {
+        volatile long sequence;
+        String message;
+        int argCount;
+        int objectMask; // bit i set if argument i is in objects[] instead of numbers[]
+        int suppressed;
+        final double[] numbers = new double[MAX_ARGS];
+        final Object[] objects = new Object[MAX_ARGS];
+    }
+
+    private RobotLogger() {
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = new Entry();
+            ring[i].sequence = i;
+        }
+        Thread drainThread = new Thread(this::drainLoop, "RobotLogger");
+        drainThread.setDaemon(true);
+        drainThread.setPriority(Thread.MIN_PRIORITY);
+        drainThread.start();
+    }
+
+    public static RobotLogger getInstance() {
+        return self;
+    }
+
+    public static void info(String message) { getInstance().log(message, 0, 0, 0, 0, 0, 0, null, null, 0); }
+    public static void info(String message, double a) { getInstance().log(message, 1, 0, a, 0, 0, 0, null, null, 0); }
+    public static void info(String message, double a, double b) { getInstance().log(message, 2, 0, a, b, 0, 0, null, null, 0); }
+    public static void info(String message, double a, double b, double c) { getInstance().log(message, 3, 0, a, b, c, 0, null, null, 0); }
+    public static void info(String message, double a, double b, double c, double d) { getInstance().log(message, 4, 0, a, b, c, d, null, null, 0); }
+    public static void info(String message, Object a) { getInstance().log(message, 1, 0b01, 0, 0, 0, 0, a, null, 0); }
+    public static void info(String message, Object a, double b) { getInstance().log(message, 2, 0b01, 0, b, 0, 0, a, null, 0); }
+    public static void info(String message, Object a, double b, double c) { getInstance().log(message, 3, 0b01, 0, b, c, 0, a, null, 0); }
+    public static void info(String message, double a, Object b) { getInstance().log(message, 2, 0b10, a, 0, 0, 0, null, b, 0); }
+    public static void info(String message, Object a, Object b) { getInstance().log(message, 2, 0b11, 0, 0, 0, 0, a, b, 0); }
+
+    public static void debug(String message) { getInstance().debug(message, 0, 0, 0, 0, 0, 0, null, null); }
+    public static void debug(String message, double a) { getInstance().debug(message, 1, 0, a, 0, 0, 0, null, null); }
+    public static void debug(String message, double a, double b) { getInstance().debug(message, 2, 0, a, b, 0, 0, null, null); }
+    public static void debug(String message, double a, double b, double c) { getInstance().debug(message, 3, 0, a, b, c, 0, null, null); }
+    public static void debug(String message, double a, double b, double c, double d) { getInstance().debug(message, 4, 0, a, b, c, d, null, null); }
+    public static void debug(String message, Object a) { getInstance().debug(message, 1, 0b01, 0, 0, 0, 0, a, null); }
+    public static void debug(String message, Object a, double b) { getInstance().debug(message, 2, 0b01, 0, b, 0, 0, a, null); }
+    public static void debug(String message, Object a, double b, double c) { getInstance().debug(message, 3, 0b01, 0, b, c, 0, a, null); }
+    public static void debug(String message, double a, Object b) { getInstance().debug(message, 2, 0b10, a, 0, 0, 0, null, b); }
+    public static void debug(String message, Object a, Object b) { getInstance().debug(message, 2, 0b11, 0, 0, 0, 0, a, b); }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void debug(String message, int argCount, int objectMask, double a, double b, double c, double d, Object oa, Object ob) {
+        int site = findSite(message);
+        if (site < 0) { // No room left to track this call site. Just log it.
+            log(message, argCount, objectMask, a, b, c, d, oa, ob, 0);
+            return;
+        }
+        long now = System.nanoTime();
+        long last = siteLastNanos.get(site);
+        // Only the caller that moves the time on logs, another thread racing it counts as suppressed
+        if ((last != 0 && now - last < DEBUG_INTERVAL_NANOS) || !siteLastNanos.compareAndSet(site, last, now)) {
+            siteSuppressed.incrementAndGet(site);
+            return;
+        }
+        int suppressed = siteSuppressed.getAndSet(site, 0);
+        log(message, argCount, objectMask, a, b, c, d, oa, ob, suppressed);
+    }
+
+    private int findSite(String message) {
+        int i = System.identityHashCode(message) & (SITES - 1);
+        for (int probe = 0; probe < SITES; probe++, i = (i + 1) & (SITES - 1)) {
+            String key = siteKeys.get(i);
+            if (key == null && (siteKeys.compareAndSet(i, null, message) || siteKeys.get(i) == message)) return i;
+            if (key == message) return i;
+        }
+        return -1;
+    }
+
+    private void log(String message, int argCount, int objectMask, double a, double b, double c, double d, Object oa, Object ob, int suppressed) {
+        long pos = tail.get();
+        Entry entry;
+        while (true) {
+            entry = ring[(int) (pos & MASK)];
+            long seq = entry.sequence;
+            if (seq == pos) {
+                if (tail.compareAndSet(pos, pos + 1)) break;
+                pos = tail.get();
+            } else if (seq < pos) { // Full. Never block the caller.
+                dropped.incrementAndGet();
+                return;
+            } else {
+                pos = tail.get();
+            }
+        }
+        entry.message = message;
+        entry.argCount = argCount;
+        entry.objectMask = objectMask;
+        entry.suppressed = suppressed;
+        entry.numbers[0] = a;
+        entry.numbers[1] = b;
+        entry.numbers[2] = c;
+        entry.numbers[3] = d;
+        entry.objects[0] = oa;
+        entry.objects[1] = ob;
+        entry.sequence = pos + 1; // Publish to the drain thread
+    }
+
+    private void drainLoop() {
+        long reportedDropped = 0;
+        while (true) {
+            if (drainOne()) continue;
+            long droppedNow = dropped.get();
+            if (droppedNow != reportedDropped) {
+                System.out.println("RobotLogger dropped " + (droppedNow - reportedDropped) + " messages");
+                reportedDropped = droppedNow;
+            }
+            try {
+                Thread.sleep(DRAIN_SLEEP_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private boolean drainOne() {
+        Entry entry = ring[(int) (head & MASK)];
+        if (entry.sequence != head + 1) return false;
+        format(entry);
+        entry.message = null;
+        entry.objects[0] = entry.objects[1] = null;
+        entry.sequence = head + CAPACITY; // Hand the slot back to producers
+        head++;
+        System.out.println(line);
+        return true;
+    }
+
+    private void format(Entry entry) {
+        line.setLength(0);
+        String message = entry.message;
+        int arg = 0;
+        int start = 0;
+        int idx;
+        while (arg < entry.argCount && (idx = message.indexOf("{}", start)) >= 0) {
+            line.append(message, start, idx);
+            if ((entry.objectMask & (1 << arg)) != 0)
+                line.append(entry.objects[arg]);
+            else
+                appendNumber(entry.numbers[arg]);
+            arg++;
+            start = idx + 2;
+        }
+        line.append(message, start, message.length());
+        if (entry.suppressed > 0)
+            line.append(" (+").append(entry.suppressed).append(" suppressed)");
+    }
+
+    private void appendNumber(double value) {
+        if (value == (long) value && Math.abs(value) < 1e15)
+            line.append((long) value);
+        else
+            line.append(value);
+    }
+}
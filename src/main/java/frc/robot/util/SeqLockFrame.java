@@ -0,0 +1,50 @@
+package frc.robot.util;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * A fixed size frame of doubles handed from one writer thread to reader threads without locks.
+ * The writer never waits. A reader copies the frame and retries if the writer published a new
+ * one while it was copying, so readers always get a complete frame from a single write.
+ * Only one thread may call write().
+ */
+public class SeqLockFrame {
+    private final double[] values;
+    private volatile long sequence = 0; // odd while a write is in progress
+
+    public SeqLockFrame(int size) {
+        values = new double[size];
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public void write(double[] source) {
+        long seq = sequence;
+        sequence = seq + 1;
+        VarHandle.storeStoreFence(); // values must not be written before the odd sequence
+        System.arraycopy(source, 0, values, 0, values.length);
+        sequence = seq + 2;
+    }
+
+    /**
+     * Copies the latest complete frame into dest.
+     * @return sequence of the frame that was copied. Changes every time a new frame is written.
+     */
+    public long read(double[] dest) {
+        while (true) {
+            long seq = sequence;
+            if ((seq & 1) == 0) {
+                System.arraycopy(values, 0, dest, 0, values.length);
+                VarHandle.loadLoadFence(); // values must be read before the sequence is checked again
+                if (sequence == seq) return seq;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,34 @@
+package frc.robot.util;
+
+/**
+ * Measures elapsed time on the RobotClock. Reports 0 until started.
+ */
+public class Stopwatch {
+    private long startMicros;
+    private boolean running = false;
+
+    public void start() {
+        startMicros = RobotClock.nowMicros();
+        running = true;
+    }
+
+    public void reset() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long elapsedMicros() {
+        return running ? RobotClock.nowMicros() - startMicros : 0;
+    }
+
+    public long elapsedMillis() {
+        return elapsedMicros() / 1000;
+    }
+
+    public double elapsedSeconds() {
+        return elapsedMicros() / 1e6;
+    }
+}
@@ -0,0 +1,108 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Publishes dashboard values from one place instead of calling SmartDashboard.putNumber every tick.
+ * Each key is registered once with a source, a rate tier and (for numbers) an epsilon. On every
+ * periodic() the sources that are due for their tier are polled and published only when the value
+ * moved by more than epsilon (or the text changed). Entry handles are looked up once at registration.
+ */
+public class Telemetry {
+    public enum Rate {
+        Hz50(1), Hz10(5), Hz1(50);
+
+        private final int ticks; // Number of 20ms ticks between publishes
+
+        Rate(int ticks) {
+            this.ticks = ticks;
+        }
+    }
+
+    private static class NumberChannel {
+        final NetworkTableEntry entry;
+        final DoubleSupplier source;
+        final int ticks;
+        final int phase;
+        final double epsilon;
+        double published = Double.NaN;
+
+        NumberChannel(String key, Rate rate, int phase, double epsilon, DoubleSupplier source) {
+            this.entry = SmartDashboard.getEntry(key);
+            this.source = source;
+            this.ticks = rate.ticks;
+            this.phase = phase % rate.ticks;
+            this.epsilon = epsilon;
+        }
+
+        void publishIfDue(long tick) {
+            if (tick % ticks != phase) return;
+            double value = source.getAsDouble();
+            if (Double.isNaN(published) || Math.abs(value - published) > epsilon) {
+                entry.setDouble(value);
+                published = value;
+            }
+        }
+    }
+
+    private static class TextChannel {
+        final NetworkTableEntry entry;
+        final Supplier<String> source;
+        final int ticks;
+        final int phase;
+        String published = null;
+
+        TextChannel(String key, Rate rate, int phase, Supplier<String> source) {
+            this.entry = SmartDashboard.getEntry(key);
+            this.source = source;
+            this.ticks = rate.ticks;
+            this.phase = phase % rate.ticks;
+        }
+
+        void publishIfDue(long tick) {
+            if (tick % ticks != phase) return;
+            String value = source.get();
+            if (value != null && !value.equals(published)) {
+                entry.setString(value);
+                published = value;
+            }
+        }
+    }
+
+    static private Telemetry self;
+    private final ArrayList<NumberChannel> numbers = new ArrayList<NumberChannel>(64);
+    private final ArrayList<TextChannel> texts = new ArrayList<TextChannel>(8);
+    private long tick = 0;
+
+    private Telemetry() {
+        self = this;
+    }
+
+    public static Telemetry getInstance() {
+        return self==null?new Telemetry():self;
+    }
+
+    /** Registers a number. Channels are phase shifted so slow tiers dont all publish in the same tick. */
+    public void addNumber(String key, Rate rate, double epsilon, DoubleSupplier source) {
+        numbers.add(new NumberChannel(key, rate, numbers.size() + texts.size(), epsilon, source));
+    }
+
+    /** Registers text. The source is only called when due, so it can build the string there. */
+    public void addText(String key, Rate rate, Supplier<String> source) {
+        texts.add(new TextChannel(key, rate, numbers.size() + texts.size(), source));
+    }
+
+    // Call once per tick from the main loop
+    public void periodic() {
+        tick++;
+        for (int i = 0; i < numbers.size(); i++)
+            numbers.get(i).publishIfDue(tick);
+        for (int i = 0; i < texts.size(); i++)
+            texts.get(i).publishIfDue(tick);
+    }
+}
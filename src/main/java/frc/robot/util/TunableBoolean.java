@@ -0,0 +1,37 @@
+package frc.robot.util;
+
+import java.util.EnumSet;
+
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableType;
+import edu.wpi.first.networktables.NetworkTableValue;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Boolean counterpart of TunableNumber.
+ */
+public class TunableBoolean {
+    private final String key;
+    private volatile boolean value;
+
+    public TunableBoolean(String key, boolean defaultValue) {
+        this.key = key;
+        this.value = defaultValue;
+        NetworkTableInstance.getDefault().addListener(SmartDashboard.getEntry(key),
+            EnumSet.of(NetworkTableEvent.Kind.kImmediate, NetworkTableEvent.Kind.kValueAll),
+            event -> {
+                if (event.valueData == null) return;
+                NetworkTableValue v = event.valueData.value;
+                if (v != null && v.getType() == NetworkTableType.kBoolean) value = v.getBoolean();
+            });
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public boolean get() {
+        return value;
+    }
+}
@@ -0,0 +1,39 @@
+package frc.robot.util;
+
+import java.util.EnumSet;
+
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableType;
+import edu.wpi.first.networktables.NetworkTableValue;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * A SmartDashboard number that hot paths can read without a NetworkTables lookup. The value is
+ * kept in a volatile field that a NetworkTables listener updates whenever the key changes, either
+ * from the dashboard or from robot code. Until the key has a value, get() returns the default.
+ */
+public class TunableNumber {
+    private final String key;
+    private volatile double value;
+
+    public TunableNumber(String key, double defaultValue) {
+        this.key = key;
+        this.value = defaultValue;
+        NetworkTableInstance.getDefault().addListener(SmartDashboard.getEntry(key),
+            EnumSet.of(NetworkTableEvent.Kind.kImmediate, NetworkTableEvent.Kind.kValueAll),
+            event -> {
+                if (event.valueData == null) return;
+                NetworkTableValue v = event.valueData.value;
+                if (v != null && v.getType() == NetworkTableType.kDouble) value = v.getDouble();
+            });
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public double get() {
+        return value;
+    }
+}
@@ -0,0 +1,73 @@
+package frc.robot.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ArmKinematicsTest {
+    private static final double DELTA = 1e-9;
+    private static final double MAX_HEIGHT = 78, MAX_WIDTH = 48;
+    private final ArmKinematics kinematics = new ArmKinematics();
+
+    // Width limits the arm from 30 degrees and height up to 60 degrees
+    private static double closedForm(double angle) {
+        double radians = Math.toRadians(angle);
+        double heightLimit = angle<=60 ? MAX_HEIGHT/Math.cos(radians) : Double.POSITIVE_INFINITY;
+        double widthLimit = angle>=30 ? MAX_WIDTH/Math.sin(radians) : Double.POSITIVE_INFINITY;
+        return Math.min(heightLimit, widthLimit);
+    }
+
+    @Test
+    void tableMatchesTheClosedForm() {
+        kinematics.setLimits(MAX_HEIGHT, MAX_WIDTH);
+        for (double angle : new double[] {0, 10, 29.9, 30, 32.5, 45, 59.9, 60, 60.1, 75, 89.5, 90}) {
+            assertEquals(closedForm(angle), kinematics.getMaxExtension(angle), DELTA, "at " + angle);
+        }
+    }
+
+    @Test
+    void anglesOutsideTheTableAreClamped() {
+        kinematics.setLimits(MAX_HEIGHT, MAX_WIDTH);
+        assertEquals(MAX_HEIGHT, kinematics.getMaxExtension(-15), DELTA);
+        assertEquals(MAX_WIDTH, kinematics.getMaxExtension(120), DELTA);
+    }
+
+    @Test
+    void noLimitIsMinusOne() {
+        kinematics.setLimits(0, MAX_WIDTH);
+        assertEquals(-1, kinematics.getMaxExtension(10), DELTA);
+        assertEquals(MAX_WIDTH/Math.sin(Math.toRadians(45)), kinematics.getMaxExtension(45), DELTA);
+        kinematics.setLimits(0, 0);
+        assertEquals(-1, kinematics.getMaxExtension(45), DELTA);
+        assertEquals(-1, kinematics.getMaxExtension(0, 90), DELTA);
+    }
+
+    @Test
+    void rangeTakesTheShortestOnTheWay() {
+        kinematics.setLimits(MAX_HEIGHT, MAX_WIDTH);
+        // Width is tightest at 90 and height at 0, whichever way round the range is given
+        assertEquals(MAX_WIDTH, kinematics.getMaxExtension(45, 90), DELTA);
+        assertEquals(MAX_WIDTH, kinematics.getMaxExtension(90, 45), DELTA);
+        assertEquals(MAX_HEIGHT, kinematics.getMaxExtension(0, 20), DELTA);
+        assertEquals(closedForm(50), kinematics.getMaxExtension(10, 50), DELTA);
+        assertEquals(MAX_WIDTH, kinematics.getMaxExtension(0, 90), DELTA);
+    }
+
+    @Test
+    void liftMoveChecksTheAnglesOnTheWay() {
+        kinematics.setLimits(MAX_HEIGHT, MAX_WIDTH);
+        assertEquals(closedForm(45), kinematics.getMaxExtension(45, 0, -2, 5, 82), DELTA);
+        // Lowering 20 rotations at -2 degrees each goes from 20 to 60, where width is tightest
+        assertEquals(closedForm(60), kinematics.getMaxExtension(20, -20, -2, 5, 82), DELTA);
+        assertEquals(closedForm(82), kinematics.getMaxExtension(45, 10, Double.NaN, 5, 82), DELTA);
+    }
+
+    @Test
+    void reachAndHeight() {
+        assertEquals(0, kinematics.getReach(0, 40), DELTA);
+        assertEquals(40, kinematics.getHeight(0, 40), DELTA);
+        assertEquals(40*Math.sin(Math.toRadians(30)), kinematics.getReach(30, 40), DELTA);
+        assertEquals(40*Math.cos(Math.toRadians(30)), kinematics.getHeight(30, 40), DELTA);
+        assertEquals(40, kinematics.getReach(90, 40), DELTA);
+    }
+}
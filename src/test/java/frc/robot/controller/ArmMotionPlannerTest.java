@@ -0,0 +1,141 @@
+package frc.robot.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.main.Constants.ElevatorConstants;
+import frc.robot.main.Constants.LiftConstants;
+import frc.robot.subsystem.PulleyLiftSubsystem;
+
+class ArmMotionPlannerTest {
+    private static final double DELTA = 1e-9;
+    private final ArmMotionPlanner planner = new ArmMotionPlanner();
+    private final Move lift = new Move();
+    private final Move elevator = new Move();
+
+    // Remembers the last move it was given
+    private static class Move implements ArmMotionPlanner.Axis {
+        double target, velocity, acceleration;
+        boolean reached = true;
+
+        @Override
+        public boolean moveTo(double target, double maxVelocity, double maxAcceleration) {
+            this.target = target;
+            velocity = maxVelocity;
+            acceleration = maxAcceleration;
+            return reached;
+        }
+    }
+
+    private static double liftSeconds(double distance, double velocity, double acceleration) {
+        return ArmMotionPlanner.trapezoidSeconds(Math.abs(distance), velocity, acceleration);
+    }
+
+    private static double elevSeconds(double distance, double rpm, double rpmPerSecond) {
+        return ArmMotionPlanner.trapezoidSeconds(Math.abs(distance), rpm/60, rpmPerSecond/60);
+    }
+
+    @Test
+    void trapezoidSeconds() {
+        assertEquals(0, ArmMotionPlanner.trapezoidSeconds(0, 20, 40), DELTA);
+        // Triangle, peaking at 20 just as it has to slow down
+        assertEquals(1, ArmMotionPlanner.trapezoidSeconds(10, 20, 40), DELTA);
+        assertEquals(2*Math.sqrt(0.1), ArmMotionPlanner.trapezoidSeconds(4, 20, 40), DELTA);
+        // 0.5s up to 20, 0.5s down and 90 at 20 in between
+        assertEquals(5.5, ArmMotionPlanner.trapezoidSeconds(100, 20, 40), DELTA);
+    }
+
+    @Test
+    void fasterAxisIsSlowedToFinishTogether() {
+        double seconds = planner.plan(0, 10, 0, 5, Double.NaN);
+        assertTrue(planner.step(lift, elevator));
+        assertEquals(liftSeconds(10, LiftConstants.kMaxVelocity, LiftConstants.kMaxAcceleration), seconds, DELTA);
+        // The lift is slower and keeps its limits
+        assertEquals(10, lift.target, DELTA);
+        assertEquals(LiftConstants.kMaxVelocity, lift.velocity, DELTA);
+        assertEquals(LiftConstants.kMaxAcceleration, lift.acceleration, DELTA);
+        // The elevator's are scaled by k and k squared so that it takes as long
+        double k = elevSeconds(5, ElevatorConstants.kMaxVelocityRpm, ElevatorConstants.kMaxAccelRpmPerSecond)/seconds;
+        assertEquals(5, elevator.target, DELTA);
+        assertEquals(ElevatorConstants.kMaxVelocityRpm*k, elevator.velocity, DELTA);
+        assertEquals(ElevatorConstants.kMaxAccelRpmPerSecond*k*k, elevator.acceleration, DELTA);
+        assertEquals(seconds, elevSeconds(5, elevator.velocity, elevator.acceleration), DELTA);
+    }
+
+    @Test
+    void scalingKeepsTheTrapezoidShape() {
+        // Long enough for both axes to cruise, and the elevator is the slower one
+        double seconds = planner.plan(0, -30, 0, 200, Double.NaN);
+        assertTrue(planner.step(lift, elevator));
+        assertEquals(elevSeconds(200, ElevatorConstants.kMaxVelocityRpm, ElevatorConstants.kMaxAccelRpmPerSecond),
+            seconds, DELTA);
+        assertEquals(ElevatorConstants.kMaxVelocityRpm, elevator.velocity, DELTA);
+        assertEquals(seconds, liftSeconds(30, lift.velocity, lift.acceleration), DELTA);
+        assertEquals(-30, lift.target, DELTA);
+    }
+
+    @Test
+    void retractsBeforeAndExtendsAfterTheEnvelope() {
+        double seconds = planner.plan(0, 10, 30, 40, 20);
+        // Retract with the lift still
+        assertFalse(planner.step(lift, elevator));
+        assertEquals(0, lift.target, DELTA);
+        assertEquals(20, elevator.target, DELTA);
+        // Lift inside the envelope
+        assertFalse(planner.step(lift, elevator));
+        assertEquals(10, lift.target, DELTA);
+        assertEquals(20, elevator.target, DELTA);
+        // Extend at the target angle
+        assertTrue(planner.step(lift, elevator));
+        assertEquals(10, lift.target, DELTA);
+        assertEquals(40, elevator.target, DELTA);
+        double expected = elevSeconds(10, ElevatorConstants.kMaxVelocityRpm, ElevatorConstants.kMaxAccelRpmPerSecond)
+            + liftSeconds(10, LiftConstants.kMaxVelocity, LiftConstants.kMaxAcceleration)
+            + elevSeconds(20, ElevatorConstants.kMaxVelocityRpm, ElevatorConstants.kMaxAccelRpmPerSecond);
+        assertEquals(expected, seconds, DELTA);
+    }
+
+    @Test
+    void staysInOneSegmentInsideTheEnvelope() {
+        planner.plan(0, 10, 5, 15, 20);
+        assertTrue(planner.step(lift, elevator));
+        assertEquals(15, elevator.target, DELTA);
+    }
+
+    @Test
+    void waitsForBothAxesBeforeTheNextSegment() {
+        planner.plan(0, 10, 30, 40, 20);
+        lift.reached = false;
+        assertFalse(planner.step(lift, elevator));
+        assertFalse(planner.step(lift, elevator));
+        assertEquals(0, lift.target, DELTA);
+        assertEquals(20, elevator.target, DELTA);
+        lift.reached = true;
+        assertFalse(planner.step(lift, elevator));
+        assertFalse(planner.step(lift, elevator));
+        assertEquals(10, lift.target, DELTA);
+    }
+
+    @Test
+    void raiseAcrossTheHeightLimitRetracts() {
+        // Raising from 60 to 20 degrees, where the height limit is tightest at 40/cos(20), not 40/cos(60)
+        ArmKinematics kinematics = new ArmKinematics();
+        kinematics.setLimits(40, 100);
+        double degreesPerRotation = PulleyLiftSubsystem.degreesPerRotation(45);
+        double limit = kinematics.getMaxExtension(60, 20, degreesPerRotation, 5, 82);
+        assertEquals(40/Math.cos(Math.toRadians(20)), limit, DELTA);
+
+        planner.plan(10, 30, 70, 70, limit);
+        assertFalse(planner.step(lift, elevator));
+        assertEquals(10, lift.target, DELTA);
+        assertEquals(limit, elevator.target, DELTA);
+        assertFalse(planner.step(lift, elevator));
+        assertEquals(30, lift.target, DELTA);
+        assertEquals(limit, elevator.target, DELTA);
+        assertTrue(planner.step(lift, elevator));
+        assertEquals(70, elevator.target, DELTA);
+    }
+}
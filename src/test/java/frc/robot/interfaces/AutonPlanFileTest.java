@@ -0,0 +1,126 @@
+package frc.robot.interfaces;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AutonPlanFileTest {
+    private static final String SCRIPT = "Move 48 .5\n[Move 20 | PCone 2]\n{Cruise 3 .4 until tilt>13 | GCone 5}\n"
+        + "Hold 2 until armAtTarget\nRCone 1 until current<5.5\nPath test";
+
+    @TempDir
+    File dir;
+
+    private static AutonPlan compile(String script) {
+        AutonPlan plan = new AutonPlan(AutonPlanFile.MAX_ACTIONS);
+        AutonScript.compile(script, plan);
+        return plan;
+    }
+
+    private File writePlans() throws IOException {
+        Map<String, AutonPlan> plans = new LinkedHashMap<>();
+        plans.put("Left", compile(SCRIPT));
+        plans.put("Empty", compile(""));
+        File file = new File(dir, AutonPlanFile.PLAN_FILE);
+        AutonPlanFile.write(plans, file);
+        return file;
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        AutonPlan expected = compile(SCRIPT);
+        Map<String, AutonPlan> plans = AutonPlanFile.read(writePlans());
+        assertEquals("[Left, Empty]", plans.keySet().toString());
+        assertEquals(0, plans.get("Empty").size());
+        AutonPlan plan = plans.get("Left");
+        assertEquals(expected.size(), plan.size());
+        for (int i = 0; i < plan.size(); i++) {
+            assertEquals(expected.getType(i), plan.getType(i));
+            assertEquals(expected.getMagnitude(i), plan.getMagnitude(i));
+            assertEquals(expected.getPlannedSpeed(i), plan.getPlannedSpeed(i));
+            assertEquals(expected.getUntilSensor(i), plan.getUntilSensor(i));
+            assertEquals(expected.isUntilAbove(i), plan.isUntilAbove(i));
+            assertEquals(expected.getUntilValue(i), plan.getUntilValue(i));
+            assertEquals(expected.getName(i), plan.getName(i));
+            assertEquals(expected.getGroupFirst(i), plan.getGroupFirst(i));
+            assertEquals(expected.getGroupLast(i), plan.getGroupLast(i));
+            assertEquals(expected.isDeadline(i), plan.isDeadline(i));
+        }
+        assertEquals("test", plan.getName(7));
+        assertTrue(plan.isDeadline(3));
+    }
+
+    // Flips every bit of the int at offset
+    private static void corruptInt(File file, int offset) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset);
+            int value = raf.readInt();
+            raf.seek(offset);
+            raf.writeInt(~value);
+        }
+    }
+
+    @Test
+    void rejectsOtherVersions() throws IOException {
+        File file = writePlans();
+        corruptInt(file, 4); // version
+        IOException e = assertThrows(IOException.class, () -> AutonPlanFile.read(file));
+        assertEquals(file + " was built by a different version of the robot code", e.getMessage());
+    }
+
+    @Test
+    void rejectsOtherActionTypes() throws IOException {
+        File file = writePlans();
+        corruptInt(file, 8); // ActionType and Sensor signature
+        IOException e = assertThrows(IOException.class, () -> AutonPlanFile.read(file));
+        assertEquals(file + " was built by a different version of the robot code", e.getMessage());
+    }
+
+    @Test
+    void rejectsTruncatedFiles() throws IOException {
+        File file = writePlans();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+        IOException e = assertThrows(IOException.class, () -> AutonPlanFile.read(file));
+        assertEquals(file + " is truncated or corrupt", e.getMessage());
+    }
+
+    @Test
+    void compileScriptsNamesTheBadScript() throws IOException {
+        File auton = new File(dir, "auton");
+        auton.mkdirs();
+        Files.write(new File(auton, "Good.auton").toPath(), "Move 4".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(auton, "Bad.auton").toPath(), "Move 4\nJump".getBytes(StandardCharsets.UTF_8));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> AutonPlanFile.compileScripts(auton));
+        assertEquals("Bad.auton line 2: Unknown action 'Jump' in 'Jump'", e.getMessage());
+    }
+
+    @Test
+    void compileScriptsChecksPaths() throws IOException {
+        File auton = new File(dir, "auton");
+        File paths = new File(dir, "paths");
+        auton.mkdirs();
+        paths.mkdirs();
+        Files.write(new File(auton, "Default.auton").toPath(), "Path there".getBytes(StandardCharsets.UTF_8));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> AutonPlanFile.compileScripts(auton));
+        assertEquals("Default.auton No path there" + AutonPlanFile.PATH_SUFFIX + " in " + paths.getAbsoluteFile(),
+            e.getMessage());
+
+        Files.write(new File(paths, "there" + AutonPlanFile.PATH_SUFFIX).toPath(), new byte[0]);
+        assertEquals("there", AutonPlanFile.compileScripts(auton).get("Default").getName(0));
+    }
+}
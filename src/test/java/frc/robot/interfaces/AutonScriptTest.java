@@ -0,0 +1,92 @@
+package frc.robot.interfaces;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.interfaces.Action.ActionType;
+import frc.robot.interfaces.Action.Sensor;
+
+class AutonScriptTest {
+    private final AutonPlan plan = new AutonPlan(AutonPlanFile.MAX_ACTIONS);
+
+    private String reject(String script) {
+        return assertThrows(IllegalArgumentException.class, () -> AutonScript.compile(script, plan)).getMessage();
+    }
+
+    @Test
+    void compilesOpsAndComments() {
+        AutonScript.compile("Move 48 .5, Turn -90 # comment\n\nPCone\nCruise 3 .4 until tilt>13\nPath test", plan);
+        assertEquals(5, plan.size());
+        assertEquals(ActionType.Move, plan.getType(0));
+        assertEquals(48, plan.getMagnitude(0));
+        assertEquals(0.5, plan.getPlannedSpeed(0));
+        assertEquals(-90, plan.getMagnitude(1));
+        assertTrue(Double.isNaN(plan.getPlannedSpeed(1)));
+        assertEquals(ActionType.PCone, plan.getType(2));
+        assertEquals(0, plan.getMagnitude(2));
+        assertNull(plan.getUntilSensor(2));
+        assertEquals(Sensor.Tilt, plan.getUntilSensor(3));
+        assertTrue(plan.isUntilAbove(3));
+        assertEquals(13.0, plan.getUntilValue(3));
+        assertEquals(ActionType.Path, plan.getType(4));
+        assertEquals("test", plan.getName(4));
+    }
+
+    @Test
+    void rejectsBadOps() {
+        assertEquals("line 1: Unknown action 'Jump' in 'Jump 3'", reject("Jump 3"));
+        assertEquals("line 1: Missing in in 'Move'", reject("Move"));
+        assertEquals("line 1: Bad number in 'Move x'", reject("Move x"));
+        assertEquals("line 1: Too many fields in 'Move 1 .5 3'", reject("Move 1 .5 3"));
+        assertEquals("line 1: Speed must be between -1 and 1 in 'Move 4 2'", reject("Move 4 2"));
+        assertEquals("line 1: Path needs just a path name in 'Path'", reject("Path"));
+    }
+
+    @Test
+    void rejectsBadConditions() {
+        assertEquals("line 1: Unknown sensor 'speed' in 'Cruise 3 until speed>2'", reject("Cruise 3 until speed>2"));
+        assertEquals("line 1: Until needs sensor>value or sensor<value in 'Cruise 3 until tilt=2'",
+            reject("Cruise 3 until tilt=2"));
+        assertEquals("line 1: Bad number in until 'tilt>x'", reject("Cruise 3 until tilt>x"));
+    }
+
+    @Test
+    void compilesGroups() {
+        AutonScript.compile("[Move 48 | PCone 2], {Cruise 3 | GCone 5 | SArm 1}, RCone 1", plan);
+        assertEquals(6, plan.size());
+        assertEquals(0, plan.getGroupFirst(1));
+        assertEquals(1, plan.getGroupLast(0));
+        assertFalse(plan.isDeadline(0));
+        assertEquals(2, plan.getGroupFirst(4));
+        assertEquals(4, plan.getGroupLast(2));
+        assertTrue(plan.isDeadline(3));
+        assertEquals(5, plan.getGroupFirst(5));
+        assertEquals(5, plan.getGroupLast(5));
+    }
+
+    @Test
+    void rejectsBadGroups() {
+        assertEquals("line 1: Unclosed group '[Move 4 | PCone 2'", reject("[Move 4 | PCone 2"));
+        assertEquals("line 1: Group needs at least 2 actions '[Move 4]'", reject("[Move 4]"));
+        assertEquals("line 1: Drive used twice in '[Move 4 | Turn 90]'", reject("[Move 4 | Turn 90]"));
+        assertEquals("line 1: Nested group in '[Move 4 | [PCone 2]'", reject("[Move 4 | [PCone 2]"));
+        assertEquals("line 1: Stop can't be in group '[Stop 1 | PCone 2]'", reject("[Stop 1 | PCone 2]"));
+    }
+
+    @Test
+    void namesTheLine() {
+        assertEquals("line 3: Unknown action 'Bogus' in 'Bogus'", reject("Move 4\n# comment\nBogus"));
+    }
+
+    @Test
+    void rejectsTooManyActions() {
+        String script = "Hold 1\n".repeat(AutonPlanFile.MAX_ACTIONS + 1);
+        assertEquals("line " + (AutonPlanFile.MAX_ACTIONS + 1) + ": More than " + AutonPlanFile.MAX_ACTIONS + " actions",
+            reject(script));
+    }
+}
@@ -0,0 +1,26 @@
+package frc.robot.subsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ElevatorSubsystemTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    void inchesAreMeasuredFromTheZeroExtensionPosition() {
+        assertEquals(2, ElevatorSubsystem.extensionPosition(0, 0.75), DELTA);
+        assertEquals(5, ElevatorSubsystem.extensionPosition(4, 0.75), DELTA);
+        assertEquals(0, ElevatorSubsystem.extensionInches(2, 0.75), DELTA);
+    }
+
+    @Test
+    void extensionInchesUndoesExtensionPosition() {
+        for (double conversion : new double[] {0.75, 0.5, 1.3}) {
+            for (double inches : new double[] {-3, 0, 4, 17.25, 64, 70.7}) {
+                double position = ElevatorSubsystem.extensionPosition(inches, conversion);
+                assertEquals(inches, ElevatorSubsystem.extensionInches(position, conversion), DELTA);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package frc.robot.subsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PulleyLiftSubsystemTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    void raisingTurnsTheEncoderUpAsThePitchGoesDown() {
+        assertEquals(3, PulleyLiftSubsystem.positionByPitch(90, 3, 45), DELTA);
+        assertEquals(48, PulleyLiftSubsystem.positionByPitch(0, 3, 45), DELTA);
+        assertTrue(PulleyLiftSubsystem.positionByPitch(20, 3, 45) > PulleyLiftSubsystem.positionByPitch(60, 3, 45));
+    }
+
+    @Test
+    void degreesPerRotationMatchesPositionByPitch() {
+        double perRotation = PulleyLiftSubsystem.degreesPerRotation(45);
+        assertEquals(-2, perRotation, DELTA);
+        double from = PulleyLiftSubsystem.positionByPitch(60, 3, 45);
+        double to = PulleyLiftSubsystem.positionByPitch(20, 3, 45);
+        assertEquals(20, 60 + (to-from)*perRotation, DELTA);
+        assertTrue(Double.isNaN(PulleyLiftSubsystem.degreesPerRotation(0)));
+    }
+}
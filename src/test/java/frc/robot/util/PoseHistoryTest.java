@@ -0,0 +1,75 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PoseHistoryTest {
+    private final double[] pose = new double[3];
+
+    @Test
+    void emptyHasNoPose() {
+        assertFalse(new PoseHistory(4).sample(0, pose));
+    }
+
+    @Test
+    void interpolatesBetweenSamples() {
+        PoseHistory history = new PoseHistory(10);
+        history.add(1000, 0, 0, 0);
+        history.add(2000, 1, 2, 0.4);
+        assertTrue(history.sample(1250, pose));
+        assertEquals(0.25, pose[0], 1e-9);
+        assertEquals(0.5, pose[1], 1e-9);
+        assertEquals(0.1, pose[2], 1e-9);
+        assertTrue(history.sample(1000, pose));
+        assertEquals(0, pose[0], 1e-9);
+        assertTrue(history.sample(2000, pose));
+        assertEquals(1, pose[0], 1e-9);
+    }
+
+    @Test
+    void newerThanNewestIsNewest() {
+        PoseHistory history = new PoseHistory(10);
+        history.add(1000, 0, 0, 0);
+        history.add(2000, 1, 2, 0.4);
+        assertTrue(history.sample(5000, pose));
+        assertEquals(1, pose[0], 1e-9);
+        assertEquals(2, pose[1], 1e-9);
+        assertEquals(0.4, pose[2], 1e-9);
+    }
+
+    @Test
+    void headingTakesTheShortWayAround() {
+        PoseHistory history = new PoseHistory(10);
+        history.add(1000, 0, 0, Math.PI - 0.1);
+        history.add(2000, 0, 0, -Math.PI + 0.1);
+        assertTrue(history.sample(1500, pose));
+        assertEquals(Math.PI, Math.abs(pose[2]), 1e-9);
+    }
+
+    @Test
+    void wrapsAroundAndForgetsOldSamples() {
+        PoseHistory history = new PoseHistory(4);
+        for (int i = 0; i < 10; i++) history.add(i*1000, i, 0, 0);
+        // Samples 6 to 9 are kept, though the oldest may be the one being overwritten
+        assertFalse(history.sample(5500, pose));
+        assertFalse(history.sample(6000, pose));
+        assertTrue(history.sample(7000, pose));
+        assertEquals(7, pose[0], 1e-9);
+        assertTrue(history.sample(8500, pose));
+        assertEquals(8.5, pose[0], 1e-9);
+        assertTrue(history.sample(9000, pose));
+        assertEquals(9, pose[0], 1e-9);
+    }
+
+    @Test
+    void tooOldLeavesDestAlone() {
+        PoseHistory history = new PoseHistory(4);
+        history.add(1000, 1, 1, 1);
+        pose[0] = 42;
+        assertFalse(history.sample(999, pose));
+        assertEquals(42, pose[0]);
+    }
+}